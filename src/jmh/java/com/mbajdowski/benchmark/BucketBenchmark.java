@@ -0,0 +1,55 @@
+package com.mbajdowski.benchmark;
+
+import com.mbajdowski.utils.BucketMap;
+import com.mbajdowski.utils.MathHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BucketBenchmark {
+
+    @Param({"1024", "4096"})
+    private int samplesPerFrame;
+
+    @Param({"10", "32"})
+    private int buckets;
+
+    private int[] fftAbs;
+    private double[] re;
+    private double[] im;
+    private BucketMap bucketMap;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(samplesPerFrame);
+        re = new double[samplesPerFrame / 2];
+        im = new double[samplesPerFrame / 2];
+        for (int i = 0; i < re.length; i++) {
+            re[i] = random.nextGaussian() * 100000;
+            im[i] = random.nextGaussian() * 100000;
+        }
+        //Magnitudes of the bins above DC, as mapped from the FFT output
+        fftAbs = new int[re.length - 1];
+        for (int i = 1; i < re.length; i++) {
+            fftAbs[i - 1] = (int) Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+        }
+        bucketMap = new BucketMap(MathHelper.generateFreqBuckets(buckets), fftAbs.length, 44100);
+    }
+
+    @Benchmark
+    public int[] mapMagnitudes() {
+        return bucketMap.map(fftAbs);
+    }
+
+    @Benchmark
+    public int[] mapComplexBins() {
+        return bucketMap.map(re, im, 1);
+    }
+}
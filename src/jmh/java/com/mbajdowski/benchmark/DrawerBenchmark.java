@@ -0,0 +1,93 @@
+package com.mbajdowski.benchmark;
+
+import com.mbajdowski.drawer.ColumnDrawer;
+import com.mbajdowski.drawer.FramePool;
+import com.mbajdowski.drawer.Grid3dDrawer;
+import com.mbajdowski.drawer.ISpectrumHistory;
+import com.mbajdowski.drawer.IStatelessFrameDrawer;
+import com.mbajdowski.drawer.LineDrawer;
+import com.mbajdowski.drawer.SpectrumHistory;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DrawerBenchmark {
+
+    private static final int NO_OF_SPECTRA = 64;
+
+    @Param({"ColumnDrawer", "LineDrawer", "Grid3dDrawer"})
+    private String drawerName;
+
+    @Param({"1280x720", "1920x1080", "3840x2160"})
+    private String resolution;
+
+    @Param({"10"})
+    private int buckets;
+
+    @Param({"JAVA2D", "SOFTWARE"})
+    private String renderer;
+
+    private IStatelessFrameDrawer drawer;
+    private FramePool framePool;
+    private ISpectrumHistory history;
+    private int[] extrema;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        String[] size = resolution.split("x");
+        Properties properties = new Properties();
+        properties.setProperty("IMG_WIDTH", size[0]);
+        properties.setProperty("IMG_HEIGHT", size[1]);
+        properties.setProperty("RENDERER", renderer);
+        drawer = createDrawer(drawerName, properties);
+        framePool = new FramePool(1);
+
+        Random random = new Random(buckets);
+        int[][] spectra = new int[NO_OF_SPECTRA][buckets];
+        for (int[] spectrum : spectra) {
+            for (int j = 0; j < buckets; j++) {
+                spectrum[j] = random.nextInt(1 << 20);
+            }
+        }
+        history = new SpectrumHistory(spectra, 0);
+        extrema = new int[]{0, 1 << 20};
+    }
+
+    @Benchmark
+    public BufferedImage drawFrame() {
+        return drawer.drawFrame(nextFrame(), history, extrema, new FramePool(1));
+    }
+
+    @Benchmark
+    public BufferedImage drawFrameWithPool() {
+        BufferedImage imgFrame = drawer.drawFrame(nextFrame(), history, extrema, framePool);
+        framePool.release(imgFrame);
+        return imgFrame;
+    }
+
+    private int nextFrame() {
+        frame = (frame + 1) % NO_OF_SPECTRA;
+        return frame;
+    }
+
+    static IStatelessFrameDrawer createDrawer(String drawerName, Properties properties) {
+        switch (drawerName) {
+            case "LineDrawer":
+                return new LineDrawer(properties);
+            case "Grid3dDrawer":
+                return new Grid3dDrawer(properties);
+            default:
+                return new ColumnDrawer(properties);
+        }
+    }
+}
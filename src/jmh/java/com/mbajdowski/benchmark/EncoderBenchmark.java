@@ -0,0 +1,82 @@
+package com.mbajdowski.benchmark;
+
+import com.mbajdowski.drawer.ColumnDrawer;
+import com.mbajdowski.drawer.FramePool;
+import com.mbajdowski.drawer.SpectrumHistory;
+import com.mbajdowski.video.PictureSequenceEncoder;
+import com.mbajdowski.video.YuvConverter;
+import org.jcodec.api.awt.AWTSequenceEncoder;
+import org.jcodec.common.model.Picture;
+import org.jcodec.scale.AWTUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EncoderBenchmark {
+
+    @Param({"1280x720", "1920x1080"})
+    private String resolution;
+
+    private BufferedImage imgFrame;
+    private Picture yuv;
+    private File awtFile;
+    private File pictureFile;
+    private AWTSequenceEncoder awtEncoder;
+    private PictureSequenceEncoder pictureEncoder;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] size = resolution.split("x");
+        Properties properties = new Properties();
+        properties.setProperty("IMG_WIDTH", size[0]);
+        properties.setProperty("IMG_HEIGHT", size[1]);
+        int[][] spectra = {{1, 5, 9, 3, 7, 2, 8, 4, 6, 10}};
+        imgFrame = new ColumnDrawer(properties).drawFrame(0, new SpectrumHistory(spectra, 0), new int[]{0, 10},
+                new FramePool(1));
+        yuv = YuvConverter.createPicture(imgFrame.getWidth(), imgFrame.getHeight());
+
+        awtFile = File.createTempFile("awt-benchmark", ".mp4");
+        pictureFile = File.createTempFile("picture-benchmark", ".mp4");
+        awtEncoder = AWTSequenceEncoder.createSequenceEncoder(awtFile, 30);
+        pictureEncoder = PictureSequenceEncoder.createSequenceEncoder(pictureFile, 30);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        awtEncoder.finish();
+        pictureEncoder.finish();
+        awtFile.delete();
+        pictureFile.delete();
+    }
+
+    @Benchmark
+    public Picture convertWithAWTUtil() {
+        return AWTUtil.fromBufferedImageRGB(imgFrame);
+    }
+
+    @Benchmark
+    public Picture convertWithYuvConverter() {
+        YuvConverter.fromBufferedImage(imgFrame, yuv);
+        return yuv;
+    }
+
+    @Benchmark
+    public void encodeWithAWTSequenceEncoder() throws IOException {
+        awtEncoder.encodeImage(imgFrame);
+    }
+
+    @Benchmark
+    public void encodeWithPictureSequenceEncoder() throws IOException {
+        pictureEncoder.encodeImage(imgFrame);
+    }
+}
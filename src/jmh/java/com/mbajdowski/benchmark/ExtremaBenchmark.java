@@ -0,0 +1,89 @@
+package com.mbajdowski.benchmark;
+
+import com.mbajdowski.utils.MathHelper;
+import com.mbajdowski.utils.SlidingExtrema;
+import com.mbajdowski.utils.SpectrumStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local extrema of every frame of a track, as computed while drawing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExtremaBenchmark {
+
+    @Param({"10", "32"})
+    private int buckets;
+
+    @Param({"80", "600"})
+    private int extremaWindow;
+
+    @Param({"10000"})
+    private int frames;
+
+    private List<int[]> spectra;
+    private SpectrumStore spectrumStore;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(frames);
+        spectra = new ArrayList<>();
+        spectrumStore = SpectrumStore.allocate(frames, buckets);
+        for (int i = 0; i < frames; i++) {
+            int[] spectrum = new int[buckets];
+            for (int j = 0; j < buckets; j++) {
+                spectrum[j] = random.nextInt(1 << 20);
+            }
+            spectra.add(spectrum);
+            spectrumStore.set(i, spectrum);
+        }
+    }
+
+    @Benchmark
+    public int findExtrema() {
+        int checksum = 0;
+        for (int i = 0; i < frames; i++) {
+            int from = Math.max(i - extremaWindow / 2, 0);
+            int to = Math.min(i + extremaWindow / 2, frames);
+            checksum += MathHelper.findExtrema(spectra.subList(from, to))[1];
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int findExtremaInStore() {
+        int checksum = 0;
+        for (int i = 0; i < frames; i++) {
+            int from = Math.max(i - extremaWindow / 2, 0);
+            int to = Math.min(i + extremaWindow / 2, frames);
+            checksum += spectrumStore.findExtrema(from, to)[1];
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int slidingExtrema() {
+        SlidingExtrema slidingExtrema = new SlidingExtrema();
+        int added = 0;
+        int checksum = 0;
+        for (int i = 0; i < frames; i++) {
+            int from = Math.max(i - extremaWindow / 2, 0);
+            int to = Math.min(i + extremaWindow / 2, frames);
+            for (; added < to; added++) {
+                slidingExtrema.add(added, spectra.get(added));
+            }
+            slidingExtrema.removeBefore(from);
+            checksum += slidingExtrema.getExtrema()[1];
+        }
+        return checksum;
+    }
+}
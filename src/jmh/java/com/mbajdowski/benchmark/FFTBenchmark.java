@@ -0,0 +1,70 @@
+package com.mbajdowski.benchmark;
+
+import com.mbajdowski.fft.Complex;
+import com.mbajdowski.fft.FFTPlan;
+import com.mbajdowski.fft.InplaceFFT;
+import com.mbajdowski.fft.RealFFT;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FFTBenchmark {
+
+    @Param({"256", "1024", "4096", "16384"})
+    private int size;
+
+    private double[] samples;
+    private Complex[] complex;
+    private double[] re;
+    private double[] im;
+    private double[] halfRe;
+    private double[] halfIm;
+    private FFTPlan fftPlan;
+    private RealFFT realFFT;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(size);
+        samples = new double[size];
+        for (int i = 0; i < size; i++) {
+            samples[i] = random.nextInt(65536) - 32768;
+        }
+        complex = new Complex[size];
+        re = new double[size];
+        im = new double[size];
+        halfRe = new double[size / 2];
+        halfIm = new double[size / 2];
+        fftPlan = FFTPlan.forSize(size);
+        realFFT = RealFFT.forSize(size);
+    }
+
+    @Benchmark
+    public Complex[] complexFft() {
+        for (int i = 0; i < size; i++) {
+            complex[i] = new Complex(samples[i], 0);
+        }
+        return InplaceFFT.fft(complex);
+    }
+
+    @Benchmark
+    public double[] primitiveFft() {
+        System.arraycopy(samples, 0, re, 0, size);
+        Arrays.fill(im, 0);
+        fftPlan.fft(re, im);
+        return re;
+    }
+
+    @Benchmark
+    public double[] realFft() {
+        realFFT.fft(samples, halfRe, halfIm);
+        return halfRe;
+    }
+}
@@ -0,0 +1,241 @@
+package com.mbajdowski;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Renders many tracks in one JVM, so start-up and JIT warm-up are paid once. Several tracks are rendered
+ * at the same time, longest first, and all of them share one worker pool for frequency analysis and
+ * drawing, so threads left idle by one track pick up the work of the others.
+ */
+public class BatchRenderer {
+
+    private static final List<String> AUDIO_EXTENSIONS = Arrays.asList(".wav", ".aif", ".aiff", ".au");
+
+    private final List<File> tracks;
+    private final Function<File, FreqVisualiser> visualiserFactory;
+    private final int concurrentTracks;
+    private final int threads;
+
+    /**
+     * @param visualiserFactory creates a configured visualiser for every track, visualisers must not share
+     *                          drawers which are not thread safe
+     */
+    public BatchRenderer(List<File> tracks, Function<File, FreqVisualiser> visualiserFactory,
+                         int concurrentTracks, int threads) {
+        if (concurrentTracks < 1 || threads < 1) {
+            throw new IllegalArgumentException("Number of tracks and threads needs to be at least 1");
+        }
+        this.tracks = tracks;
+        this.visualiserFactory = visualiserFactory;
+        this.concurrentTracks = concurrentTracks;
+        this.threads = threads;
+    }
+
+    /**
+     * Lists audio files in the directory and its subdirectories, or the files listed in a manifest with
+     * one path per line. Blank lines and lines starting with # are skipped, relative paths are resolved
+     * against the directory of the manifest.
+     */
+    public static List<File> listTracks(File directoryOrManifest) throws IOException {
+        Path path = directoryOrManifest.toPath();
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                return files.filter(Files::isRegularFile)
+                        .filter(BatchRenderer::isAudioFile)
+                        .sorted()
+                        .map(Path::toFile)
+                        .collect(Collectors.toList());
+            }
+        }
+
+        Path baseDirectory = path.toAbsolutePath().getParent();
+        List<File> result = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                result.add(baseDirectory.resolve(trimmed).toFile());
+            }
+        }
+        return result;
+    }
+
+    private static boolean isAudioFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return AUDIO_EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    public Summary render() throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ExecutorService trackExecutor = Executors.newFixedThreadPool(concurrentTracks);
+        Summary summary = new Summary();
+        StatusLine statusLine = new StatusLine(tracks.size());
+        long start = System.nanoTime();
+
+        try {
+            //Longest tracks first, so the short ones fill the gaps at the end
+            List<File> ordered = new ArrayList<>(tracks);
+            ordered.sort(Comparator.comparingLong(File::length).reversed());
+            for (File track : ordered) {
+                trackExecutor.execute(() -> renderTrack(track, workers, summary, statusLine));
+            }
+            trackExecutor.shutdown();
+            trackExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } finally {
+            trackExecutor.shutdownNow();
+            workers.shutdownNow();
+        }
+
+        System.out.println();
+        summary.wallSeconds = (System.nanoTime() - start) / 1e9;
+        return summary;
+    }
+
+    private void renderTrack(File track, ExecutorService workers, Summary summary, StatusLine statusLine) {
+        long start = System.nanoTime();
+        try {
+            FreqVisualiser visualiser = visualiserFactory.apply(track);
+            int[] framesInTotal = new int[1];
+            visualiser.setSharedExecutor(workers);
+            visualiser.setProgressListener((framesDone, frames) -> {
+                framesInTotal[0] = frames;
+                statusLine.update(track, framesDone, frames);
+            });
+            visualiser.render();
+
+            double audioSeconds = framesInTotal[0] / (double) visualiser.getFps();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            summary.addRendered(audioSeconds);
+            statusLine.finish(track, String.format(Locale.ROOT, "%s: %.1f s of audio in %.1f s",
+                    track.getName(), audioSeconds, seconds));
+        } catch (Throwable e) {
+            //Every track is counted, errors still reach the thread afterwards
+            summary.addFailed(track, e);
+            statusLine.finish(track, track.getName() + " failed: " + e);
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+
+    public static class Summary {
+
+        private final Map<File, Throwable> failed = new LinkedHashMap<>();
+        private int rendered;
+        private double audioSeconds;
+        private double wallSeconds;
+
+        private synchronized void addRendered(double audioSeconds) {
+            this.rendered++;
+            this.audioSeconds += audioSeconds;
+        }
+
+        private synchronized void addFailed(File track, Throwable e) {
+            failed.put(track, e);
+        }
+
+        public synchronized int getRendered() {
+            return rendered;
+        }
+
+        public synchronized Map<File, Throwable> getFailed() {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(failed));
+        }
+
+        public synchronized double getAudioSeconds() {
+            return audioSeconds;
+        }
+
+        public double getWallSeconds() {
+            return wallSeconds;
+        }
+
+        // audio seconds rendered per second of wall time
+        public double getThroughput() {
+            return wallSeconds > 0 ? getAudioSeconds() / wallSeconds : 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Batch summary").append(System.lineSeparator());
+            sb.append(String.format(Locale.ROOT, "Tracks rendered: %d, failed: %d%n", getRendered(), getFailed().size()));
+            sb.append(String.format(Locale.ROOT, "Audio: %.1f s, wall time: %.1f s, throughput: %.2f audio-s/wall-s",
+                    getAudioSeconds(), wallSeconds, getThroughput()));
+            for (Map.Entry<File, Throwable> entry : getFailed().entrySet()) {
+                sb.append(System.lineSeparator()).append("Failed: ").append(entry.getKey())
+                        .append(" (").append(entry.getValue()).append(')');
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Single console line with the progress of all tracks which are being rendered.
+     */
+    private static class StatusLine {
+
+        private final Map<File, Integer> percents = new LinkedHashMap<>();
+        private final int noOfTracks;
+        private int finished = 0;
+        private int lastLength = 0;
+
+        StatusLine(int noOfTracks) {
+            this.noOfTracks = noOfTracks;
+        }
+
+        synchronized void update(File track, int framesDone, int framesInTotal) {
+            int percent = framesInTotal > 0 ? framesDone * 100 / framesInTotal : 100;
+            Integer previous = percents.put(track, percent);
+            if (previous == null || previous != percent) {
+                print(null);
+            }
+        }
+
+        synchronized void finish(File track, String message) {
+            percents.remove(track);
+            finished++;
+            print(message);
+        }
+
+        private void print(String message) {
+            StringBuilder sb = new StringBuilder("\r");
+            if (message != null) {
+                appendPadded(sb, message);
+                sb.append(System.lineSeparator());
+            }
+
+            StringBuilder status = new StringBuilder();
+            status.append('[').append(finished).append('/').append(noOfTracks).append(']');
+            for (Map.Entry<File, Integer> entry : percents.entrySet()) {
+                status.append(' ').append(entry.getKey().getName()).append(' ').append(entry.getValue()).append('%');
+            }
+            appendPadded(sb, status.toString());
+            lastLength = status.length();
+            System.out.print(sb);
+        }
+
+        //Spaces overwrite the rest of the previous status
+        private void appendPadded(StringBuilder sb, String line) {
+            sb.append(line);
+            for (int i = line.length(); i < lastLength; i++) {
+                sb.append(' ');
+            }
+        }
+    }
+}
@@ -1,37 +1,72 @@
 package com.mbajdowski;
 
+import com.mbajdowski.drawer.ChannelLayout;
 import com.mbajdowski.drawer.ColumnDrawer;
+import com.mbajdowski.drawer.FrameDrawerAdapter;
 import com.mbajdowski.drawer.IFrameDrawer;
-import com.mbajdowski.fft.Complex;
-import com.mbajdowski.fft.InplaceFFT;
-import com.mbajdowski.sound.MusicFileManager;
+import com.mbajdowski.drawer.IStatelessFrameDrawer;
+import com.mbajdowski.drawer.SpectrumHistoryBuffer;
+import com.mbajdowski.fft.AnalysisMode;
+import com.mbajdowski.fft.ISpectrumSource;
+import com.mbajdowski.fft.SpectrumAnalyser;
+import com.mbajdowski.metrics.Metrics;
+import com.mbajdowski.metrics.Stage;
+import com.mbajdowski.sound.ChannelMode;
+import com.mbajdowski.sound.IAudioSource;
+import com.mbajdowski.utils.IProgressListener;
 import com.mbajdowski.utils.MathHelper;
 import com.mbajdowski.utils.ProgressPrinter;
-import org.jcodec.api.awt.AWTSequenceEncoder;
+import com.mbajdowski.utils.SpectrumCache;
+import com.mbajdowski.utils.SpectrumStore;
+import com.mbajdowski.utils.SpectrumWindow;
+import com.mbajdowski.video.FramePipeline;
+import com.mbajdowski.video.FrameSinkType;
+import com.mbajdowski.video.IFrameSink;
 
 import javax.sound.sampled.UnsupportedAudioFileException;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
-
-import static com.mbajdowski.utils.MathHelper.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 public class FreqVisualiser {
 
+    private static final int FRAMES_PER_THREAD = 16;
+    //Spectra of longer tracks rendered in segments are kept off-heap
+    private static final int MAX_HEAP_SPECTRUM_VALUES = 1 << 24;
+
     private File file;
     private int fps;
     private int[] freqBuckets;
-    private IFrameDrawer frameDrawer;
+    private IStatelessFrameDrawer frameDrawer;
     private int extremaWindow;
+    private int threads = 1;
+    private int windowSize = 0;
+    private AnalysisMode analysisMode = AnalysisMode.FFT;
+    private ChannelMode channelMode = ChannelMode.FIRST;
+    private SpectrumCache spectrumCache;
+    private ExecutorService sharedExecutor;
+    private IProgressListener progressListener;
+    private boolean metricsEnabled = false;
+    private FrameSinkType sinkType = FrameSinkType.MP4;
+    private String output;
+    private int segments = 1;
+    private Supplier<IStatelessFrameDrawer> drawerFactory;
+    private Metrics metrics = Metrics.DISABLED;
 
     public FreqVisualiser(File file, int fps, int noFreqBuckets) {
         this(file, fps, noFreqBuckets, new ColumnDrawer(), 10);
     }
 
     public FreqVisualiser(File file, int fps, int noFreqBuckets, IFrameDrawer frameDrawer, int extremaWindowInSec) {
+        this(file, fps, noFreqBuckets, new FrameDrawerAdapter(frameDrawer), extremaWindowInSec);
+    }
+
+    public FreqVisualiser(File file, int fps, int noFreqBuckets, IStatelessFrameDrawer frameDrawer,
+                          int extremaWindowInSec) {
         this.file = file;
         this.fps = fps;
         this.frameDrawer = frameDrawer;
@@ -39,91 +74,306 @@ public class FreqVisualiser {
         this.freqBuckets = MathHelper.generateFreqBuckets(noFreqBuckets);
     }
 
-    public void setFrameDrawer(IFrameDrawer frameDrawer) {
+    public void setFrameDrawer(IStatelessFrameDrawer frameDrawer) {
         this.frameDrawer = frameDrawer;
     }
 
+    public void setFrameDrawer(IFrameDrawer frameDrawer) {
+        this.frameDrawer = new FrameDrawerAdapter(frameDrawer);
+    }
+
+    /**
+     * Number of frames, centred on the drawn one, in which extrema are found.
+     */
     public void setExtremaWindow(int extremaWindow) {
         this.extremaWindow = extremaWindow;
     }
 
-    public void generate() {
+    public void setExtremaWindowSeconds(int extremaWindowInSec) {
+        setExtremaWindow(extremaWindowInSec * fps);
+    }
 
-        try {
-            File tmpResult = new File(file.getAbsolutePath() + ".video.mp4");
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads needs to be at least 1");
+        }
+        this.threads = threads;
+    }
 
-            MusicFileManager mfm = new MusicFileManager(file);
+    /**
+     * Number of samples analysed for every frame, independent of the number of samples between frames.
+     * Windows longer than the hop overlap. 0 picks the largest power of two not above the hop.
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize != 0 && windowSize < 2) {
+            throw new IllegalArgumentException("Window size needs to be at least 2 samples");
+        }
+        this.windowSize = windowSize;
+    }
+
+    public void setAnalysisMode(AnalysisMode analysisMode) {
+        this.analysisMode = analysisMode;
+    }
 
-            float sampleRate = mfm.getFormat().getSampleRate();
-            int sampleSize = mfm.getFormat().getSampleSizeInBits() / 8;
-            int desiredSamplesPerSecond = (int) sampleRate / fps;
-            int samplesPerFrame = findNearestPowerOfTwo(desiredSamplesPerSecond);
-            byte[] data = mfm.getChannelData(0);
+    public void setChannelMode(ChannelMode channelMode) {
+        this.channelMode = channelMode;
+    }
 
-            int framesInTotal = (int) Math.ceil(data.length / (double) (desiredSamplesPerSecond * sampleSize));
-            List<int[]> mappedFreqList = new LinkedList<>();
+    /**
+     * Directory where spectra are cached between runs, null disables the cache.
+     */
+    public void setCacheDirectory(File cacheDirectory) {
+        this.spectrumCache = cacheDirectory != null ? new SpectrumCache(cacheDirectory) : null;
+    }
 
-            //Calculate fft
-            ProgressPrinter fftProgressPrinter = new ProgressPrinter("FFT Calculation", 20, framesInTotal);
-            for (int i = 0; i < framesInTotal; i++) {
-                int from = sampleSize * i * desiredSamplesPerSecond;
-                int to = from + sampleSize * samplesPerFrame;
+    /**
+     * Executor with the configured number of threads shared with other visualisers, it is not shut down
+     * after generation. By default every generation creates its own threads.
+     */
+    public void setSharedExecutor(ExecutorService sharedExecutor) {
+        this.sharedExecutor = sharedExecutor;
+    }
 
-                int[] intArr = byteArrayToIntArray(Arrays.copyOfRange(data, from, to));
+    /**
+     * Listener notified about drawn frames, by default the progress is printed to the console.
+     */
+    public void setProgressListener(IProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
 
-                Complex[] fft = convertToComplexArray(intArr);
-                fft = InplaceFFT.fft(fft);
+    /**
+     * Kind and location of the output, null output writes it next to the audio file
+     * (e.g. file.wav.video.mp4 or file.wav.frames directory).
+     */
+    public void setOutput(FrameSinkType sinkType, String output) {
+        if (sinkType == FrameSinkType.PREVIEW) {
+            throw new IllegalArgumentException("Preview is available only in live mode");
+        }
+        this.sinkType = sinkType;
+        this.output = output;
+    }
 
-                //Remove half of the results (Niquist limit)
-                //Remove first frequency (static gain) - start from 1
-                fft = Arrays.copyOfRange(fft, 1, fft.length / 2);
-                int[] fftAbs = convertToIntArray(fft);
+    /**
+     * Number of time segments of the MP4 rendered concurrently and concatenated, 1 renders it in one piece.
+     */
+    public void setSegments(int segments) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("Number of segments needs to be at least 1");
+        }
+        this.segments = segments;
+    }
 
-                int[] mappedFreq = mapFrequenciesToBuckets(fftAbs, freqBuckets, sampleRate);
+    /**
+     * Creates drawers of the segments, drawers keeping history themselves cannot be shared between them.
+     * Without the factory segments share the frame drawer.
+     */
+    public void setDrawerFactory(Supplier<IFrameDrawer> drawerFactory) {
+        this.drawerFactory = () -> new FrameDrawerAdapter(drawerFactory.get());
+    }
 
-                mappedFreqList.add(mappedFreq);
-                fftProgressPrinter.incrementAndPrint();
-            }
+    /**
+     * Creates drawers of the segments for drawers implementing {@link IStatelessFrameDrawer}, named apart from
+     * {@link #setDrawerFactory(Supplier)} as both factories erase to the same type.
+     */
+    public void setStatelessDrawerFactory(Supplier<IStatelessFrameDrawer> drawerFactory) {
+        this.drawerFactory = drawerFactory;
+    }
 
-            AWTSequenceEncoder encoder = AWTSequenceEncoder.createSequenceEncoder(tmpResult, fps);
+    /**
+     * Measures stages of the generation, exposes them in JMX while rendering and writes them
+     * to a .metrics.json file next to the video.
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
 
-            //Draw frames
-            ProgressPrinter drawerProgressPrinter = new ProgressPrinter("Animation Generation", 20, framesInTotal);
-            for (int i = 0; i < mappedFreqList.size(); i++) {
-                int[] mappedFreq = mappedFreqList.get(i);
-                int from = Math.max(i - extremaWindow / 2, 0);
-                int to = Math.min(i + extremaWindow / 2, mappedFreqList.size());
-                int[] localExtrema = findExtrema(mappedFreqList.subList(from, to));
-                BufferedImage imgFrame = frameDrawer.drawFFT(mappedFreq, localExtrema);
-                encoder.encodeImage(imgFrame);
+    public File getFile() {
+        return file;
+    }
 
-                drawerProgressPrinter.incrementAndPrint();
-            }
-            encoder.finish();
+    public int getFps() {
+        return fps;
+    }
 
-        } catch (UnsupportedAudioFileException | IOException e) {
+    public void generate() {
+        try {
+            render();
+        } catch (UnsupportedAudioFileException | IOException | InterruptedException e) {
             e.printStackTrace();
         }
     }
 
-    private int[] mapFrequenciesToBuckets(int[] fftAbs, int[] freqBuckets, float sampleRate) {
-        int[] highestArray = new int[freqBuckets.length];
-        float coefficient = 1.5f;
-        int minJ = 0;
+    public void render() throws UnsupportedAudioFileException, IOException, InterruptedException {
+        ExecutorService executor = sharedExecutor != null ? sharedExecutor
+                : threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        if (segments > 1 && sinkType != FrameSinkType.MP4) {
+            throw new IllegalArgumentException("Only MP4 can be rendered in segments");
+        }
+        //Every segment is rendered on its own thread
+        ExecutorService segmentExecutor = segments == 1 ? null
+                : sharedExecutor != null ? sharedExecutor : Executors.newFixedThreadPool(segments);
+        FramePipeline framePipeline = null;
+        metrics = metricsEnabled ? new Metrics() : Metrics.DISABLED;
+        metrics.register(file.getName());
+
+        try (ISpectrumSource spectrumSource = openSpectrumSource(executor)) {
+            int framesInTotal = spectrumSource.getFrameCount();
+
+            //Drawers which cannot render the channels separately get them merged
+            int channels = spectrumSource.getChannels();
+            int mergedChannels = frameDrawer.supportsChannels(channels) ? 1 : channels;
+            frameDrawer.setChannels(channels / mergedChannels);
 
-        for (int i = 0; i < fftAbs.length; i++) {
-            float freq = (i + 1) * sampleRate / (fftAbs.length * 2);
-            for (int j = minJ; j < freqBuckets.length; j++) {
-                if (freq <= freqBuckets[j] * coefficient) {
-                    if (highestArray[j] < fftAbs[i]) {
-                        highestArray[j] = fftAbs[i];
+            IProgressListener progress = progressListener != null ? progressListener
+                    : new ProgressPrinter("Animation Generation", 20, framesInTotal);
+            String target = output != null ? output : sinkType.getDefaultOutput(file);
+            if (segments > 1) {
+                //All spectra are kept, segments are drawn in any order
+                int rowLength = channels / mergedChannels * spectrumSource.getNoOfBuckets();
+                SpectrumStore spectra = (long) framesInTotal * rowLength > MAX_HEAP_SPECTRUM_VALUES
+                        ? SpectrumStore.allocateDirect(framesInTotal, rowLength)
+                        : SpectrumStore.allocate(framesInTotal, rowLength);
+                SpectrumStore extrema = SpectrumStore.allocate(framesInTotal, 2);
+                streamFrames(spectrumSource, mergedChannels, (frame, spectrum, localExtrema) -> {
+                    spectra.set(frame, spectrum);
+                    extrema.set(frame, localExtrema);
+                });
+
+                SegmentedRenderer segmentedRenderer = new SegmentedRenderer(segmentDrawerFactory(),
+                        channels / mergedChannels, fps);
+                segmentedRenderer.setMetrics(metrics);
+                segmentedRenderer.render(spectra, extrema, segments, new File(target), segmentExecutor, progress);
+            } else {
+                IFrameSink frameSink = sinkType.open(target, fps, threads);
+                try {
+                    framePipeline = new FramePipeline(frameDrawer, frameSink, sharedExecutor, threads);
+                } catch (RuntimeException | Error e) {
+                    try {
+                        frameSink.close();
+                    } catch (IOException closeException) {
+                        e.addSuppressed(closeException);
                     }
-                    break;
+                    throw e;
                 }
-                minJ++;
+                framePipeline.setMetrics(metrics);
+
+                FramePipeline pipeline = framePipeline;
+                //Drawers keeping history themselves need only the drawn frame
+                SpectrumHistoryBuffer historyBuffer = new SpectrumHistoryBuffer(
+                        frameDrawer.isThreadSafe() ? frameDrawer.getHistoryLength() : 0);
+                streamFrames(spectrumSource, mergedChannels, (frame, spectrum, localExtrema) -> {
+                    pipeline.submit(frame, historyBuffer.add(spectrum), localExtrema);
+                    progress.progress(frame + 1, framesInTotal);
+                });
+                framePipeline.finish();
+                framePipeline = null;
+            }
+
+            if (metricsEnabled) {
+                metrics.finish();
+                File metricsFile = new File(file.getAbsolutePath() + ".metrics.json");
+                Files.write(metricsFile.toPath(), metrics.toJson().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (Throwable e) {
+            if (framePipeline != null) {
+                framePipeline.abort(e);
+            }
+            throw e;
+        } finally {
+            metrics.unregister();
+            if (executor != null && executor != sharedExecutor) {
+                executor.shutdownNow();
+            }
+            if (segmentExecutor != null && segmentExecutor != sharedExecutor) {
+                segmentExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Spectra come from the cache when it has them, otherwise they are analysed and stored in the cache.
+     */
+    private ISpectrumSource openSpectrumSource(ExecutorService executor)
+            throws IOException, UnsupportedAudioFileException {
+        String cacheKey = null;
+        if (spectrumCache != null) {
+            cacheKey = SpectrumCache.createKey(file, fps, freqBuckets.length, windowSize, analysisMode, channelMode);
+            ISpectrumSource cached = spectrumCache.load(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        IAudioSource audioSource = IAudioSource.open(file);
+        SpectrumAnalyser analyser;
+        try {
+            analyser = new SpectrumAnalyser(audioSource, fps, freqBuckets, windowSize, analysisMode, channelMode,
+                    executor, threads);
+            analyser.setMetrics(metrics);
+        } catch (RuntimeException e) {
+            audioSource.close();
+            throw e;
+        }
+        return spectrumCache != null ? spectrumCache.store(cacheKey, analyser) : analyser;
+    }
+
+    /**
+     * Streams spectra in batches of frames and passes every frame with its extrema to the consumer in order.
+     * Only spectra within the extrema window are kept.
+     */
+    private void streamFrames(ISpectrumSource spectrumSource, int mergedChannels, FrameConsumer consumer)
+            throws IOException, InterruptedException {
+        int framesInTotal = spectrumSource.getFrameCount();
+        int batchSize = threads * FRAMES_PER_THREAD;
+        int[][] batchSpectra = new int[batchSize][];
+        SpectrumWindow spectrumWindow = new SpectrumWindow();
+        int nextFrameToDraw = 0;
+
+        for (int batchStart = 0; batchStart < framesInTotal; batchStart += batchSize) {
+            int framesInBatch = spectrumSource.read(batchSpectra, Math.min(batchSize, framesInTotal - batchStart));
+            for (int i = 0; i < framesInBatch; i++) {
+                spectrumWindow.add(batchSpectra[i]);
+            }
+
+            //Draw frames which have all spectra of their extrema window calculated
+            int calculatedFrames = batchStart + framesInBatch;
+            while (nextFrameToDraw < calculatedFrames
+                    && Math.min(nextFrameToDraw + Math.max(extremaWindow / 2, 1), framesInTotal) <= calculatedFrames) {
+                drawFrame(nextFrameToDraw++, framesInTotal, mergedChannels, spectrumWindow, consumer);
             }
         }
+        while (nextFrameToDraw < framesInTotal) {
+            drawFrame(nextFrameToDraw++, framesInTotal, mergedChannels, spectrumWindow, consumer);
+        }
+    }
+
+    private void drawFrame(int frame, int framesInTotal, int mergedChannels, SpectrumWindow spectrumWindow,
+                           FrameConsumer consumer) throws IOException, InterruptedException {
+        int from = Math.max(frame - extremaWindow / 2, 0);
+        int to = Math.min(frame + extremaWindow / 2, framesInTotal);
+        long start = metrics.start();
+        spectrumWindow.removeBefore(from);
+
+        int[] localExtrema = spectrumWindow.findExtrema(from, to);
+        int[] spectrum = spectrumWindow.get(frame);
+        if (mergedChannels > 1) {
+            spectrum = ChannelLayout.merge(spectrum, mergedChannels);
+        }
+        metrics.stop(Stage.EXTREMA, start);
+        consumer.accept(frame, spectrum, localExtrema);
+    }
+
+    private Supplier<IStatelessFrameDrawer> segmentDrawerFactory() {
+        if (drawerFactory != null) {
+            return drawerFactory;
+        }
+        if (!frameDrawer.isThreadSafe()) {
+            throw new IllegalStateException("Segments of a drawer which is not thread safe need a drawer factory");
+        }
+        return () -> frameDrawer;
+    }
 
-        return highestArray;
+    private interface FrameConsumer {
+        void accept(int frame, int[] spectrum, int[] extrema) throws IOException, InterruptedException;
     }
 }
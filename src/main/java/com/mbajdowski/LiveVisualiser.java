@@ -0,0 +1,226 @@
+package com.mbajdowski;
+
+import com.mbajdowski.drawer.ChannelLayout;
+import com.mbajdowski.drawer.FramePool;
+import com.mbajdowski.drawer.ISpectrumHistory;
+import com.mbajdowski.drawer.IStatelessFrameDrawer;
+import com.mbajdowski.drawer.SpectrumHistoryBuffer;
+import com.mbajdowski.fft.AnalysisMode;
+import com.mbajdowski.fft.SpectrumAnalyser;
+import com.mbajdowski.sound.ChannelMode;
+import com.mbajdowski.sound.IAudioSource;
+import com.mbajdowski.utils.MathHelper;
+import com.mbajdowski.utils.SpectrumWindow;
+import com.mbajdowski.video.IFrameSink;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Visualises audio while it arrives, e.g. from a microphone line, stdin or a named pipe. The calling thread
+ * reads the samples of every frame as soon as they are available and analyses them, a single drawing thread
+ * draws the frames and writes them to the sink. Frames are handed over through a single slot, so a frame
+ * which the drawing thread has not picked up before the next one is analysed is dropped, as well as frames
+ * older than the latency budget. The output never lags behind the audio.
+ * Extrema are found in the window of frames preceding the drawn one, later frames are not known yet.
+ * The history passed to the drawer contains dropped frames as well.
+ */
+public class LiveVisualiser {
+
+    private static final long OFFER_TIMEOUT_MS = 100;
+    private static final LiveFrame END_OF_STREAM = new LiveFrame(0, null, null, 0);
+
+    private final IAudioSource audioSource;
+    private final int fps;
+    private final int[] freqBuckets;
+    private final IStatelessFrameDrawer frameDrawer;
+    private final IFrameSink frameSink;
+    private int extremaWindow;
+    private int windowSize = 0;
+    private AnalysisMode analysisMode = AnalysisMode.FFT;
+    private ChannelMode channelMode = ChannelMode.FIRST;
+    private long latencyBudgetNanos;
+
+    private final BlockingQueue<LiveFrame> latestFrame = new ArrayBlockingQueue<>(1);
+    private final AtomicLong drawnFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile boolean running;
+
+    public LiveVisualiser(IAudioSource audioSource, int fps, int noFreqBuckets, IStatelessFrameDrawer frameDrawer,
+                          IFrameSink frameSink) {
+        this.audioSource = audioSource;
+        this.fps = fps;
+        this.freqBuckets = MathHelper.generateFreqBuckets(noFreqBuckets);
+        this.frameDrawer = frameDrawer;
+        this.frameSink = frameSink;
+        this.extremaWindow = 10 * fps;
+        //Two frame periods by default
+        this.latencyBudgetNanos = TimeUnit.SECONDS.toNanos(2) / fps;
+    }
+
+    /**
+     * Number of preceding frames, including the drawn one, in which extrema are found.
+     */
+    public void setExtremaWindow(int extremaWindow) {
+        this.extremaWindow = Math.max(extremaWindow, 1);
+    }
+
+    public void setExtremaWindowSeconds(int extremaWindowInSec) {
+        setExtremaWindow(extremaWindowInSec * fps);
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public void setAnalysisMode(AnalysisMode analysisMode) {
+        this.analysisMode = analysisMode;
+    }
+
+    public void setChannelMode(ChannelMode channelMode) {
+        this.channelMode = channelMode;
+    }
+
+    /**
+     * Longest time between the end of the audio of a frame and the start of its drawing,
+     * frames waiting longer are dropped.
+     */
+    public void setLatencyBudget(long millis) {
+        this.latencyBudgetNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public long getDrawnFrames() {
+        return drawnFrames.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Visualises the audio until it ends or {@link #stop()} is called. The audio source and the sink are closed.
+     */
+    public void run() throws IOException, InterruptedException {
+        running = true;
+        ExecutorService drawExecutor = Executors.newSingleThreadExecutor();
+        try (IAudioSource source = audioSource; IFrameSink sink = frameSink) {
+            SpectrumAnalyser analyser = new SpectrumAnalyser(source, fps, freqBuckets, windowSize, analysisMode,
+                    channelMode, null, 1);
+            int channels = analyser.getChannels();
+            int mergedChannels = frameDrawer.supportsChannels(channels) ? 1 : channels;
+            frameDrawer.setChannels(channels / mergedChannels);
+
+            Future<?> drawing = drawExecutor.submit(() -> {
+                drawFrames(sink);
+                return null;
+            });
+            analyseFrames(analyser, mergedChannels, drawing);
+            //The drawing thread picks up the last frame before the end
+            while (!latestFrame.offer(END_OF_STREAM, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (drawing.isDone()) {
+                    break;
+                }
+            }
+            drawing.get();
+        } catch (ExecutionException e) {
+            throw asIOException(e);
+        } finally {
+            running = false;
+            drawExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops the visualisation after the samples of the current frame arrive.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    private void analyseFrames(SpectrumAnalyser analyser, int mergedChannels, Future<?> drawing)
+            throws IOException, InterruptedException {
+        int[][] spectra = new int[1][];
+        SpectrumWindow spectrumWindow = new SpectrumWindow();
+        //Drawers keeping history themselves need only the drawn frame
+        SpectrumHistoryBuffer historyBuffer = new SpectrumHistoryBuffer(
+                frameDrawer.isThreadSafe() ? frameDrawer.getHistoryLength() : 0);
+        for (int frame = 0; running && !drawing.isDone(); frame++) {
+            if (analyser.read(spectra, 1) == 0) {
+                return;
+            }
+            long analysedAt = System.nanoTime();
+
+            int from = Math.max(frame - extremaWindow + 1, 0);
+            spectrumWindow.add(spectra[0]);
+            spectrumWindow.removeBefore(from);
+            int[] extrema = spectrumWindow.findExtrema(from, frame + 1);
+            int[] spectrum = mergedChannels > 1 ? ChannelLayout.merge(spectra[0], mergedChannels) : spectra[0];
+            ISpectrumHistory history = historyBuffer.add(spectrum);
+
+            //Replace the frame still waiting for the drawing thread, only one producer offers frames
+            LiveFrame liveFrame = new LiveFrame(frame, history, extrema, analysedAt);
+            if (!latestFrame.offer(liveFrame)) {
+                if (latestFrame.poll() != null) {
+                    droppedFrames.incrementAndGet();
+                }
+                latestFrame.offer(liveFrame);
+            }
+        }
+    }
+
+    private void drawFrames(IFrameSink sink) throws IOException, InterruptedException {
+        FramePool framePool = new FramePool(1);
+        while (true) {
+            LiveFrame liveFrame = latestFrame.take();
+            if (liveFrame == END_OF_STREAM) {
+                return;
+            }
+            if (System.nanoTime() - liveFrame.analysedAt > latencyBudgetNanos) {
+                droppedFrames.incrementAndGet();
+                continue;
+            }
+
+            BufferedImage image = frameDrawer.drawFrame(liveFrame.frame, liveFrame.history, liveFrame.extrema,
+                    framePool);
+            sink.write(image);
+            framePool.release(image);
+            drawnFrames.incrementAndGet();
+        }
+    }
+
+    private static IOException asIOException(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    private static class LiveFrame {
+        private final int frame;
+        private final ISpectrumHistory history;
+        private final int[] extrema;
+        private final long analysedAt;
+
+        LiveFrame(int frame, ISpectrumHistory history, int[] extrema, long analysedAt) {
+            this.frame = frame;
+            this.history = history;
+            this.extrema = extrema;
+            this.analysedAt = analysedAt;
+        }
+    }
+}
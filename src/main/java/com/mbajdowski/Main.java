@@ -3,33 +3,61 @@ package com.mbajdowski;
 
 import com.mbajdowski.drawer.ColumnDrawer;
 import com.mbajdowski.drawer.Grid3dDrawer;
-import com.mbajdowski.drawer.IFrameDrawer;
+import com.mbajdowski.drawer.IStatelessFrameDrawer;
 import com.mbajdowski.drawer.LineDrawer;
 import com.mbajdowski.exceptions.NotSupportedDrawerException;
+import com.mbajdowski.fft.AnalysisMode;
+import com.mbajdowski.sound.ChannelMode;
+import com.mbajdowski.sound.IAudioSource;
+import com.mbajdowski.sound.MusicFileManager;
 import com.mbajdowski.utils.MapToStringHelper;
+import com.mbajdowski.video.IFrameSink;
+import com.mbajdowski.video.FrameSinkType;
+import com.mbajdowski.video.PreviewWindow;
 import org.apache.commons.cli.*;
 
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.TargetDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.function.Function;
 
 public class Main {
 
-    public static void main(String... args) throws ParseException, IOException {
-        Map<String, IFrameDrawer> drawers = new HashMap<>();
-        drawers.put(LineDrawer.class.getSimpleName(), new LineDrawer());
-        drawers.put(ColumnDrawer.class.getSimpleName(), new ColumnDrawer());
-        drawers.put(Grid3dDrawer.class.getSimpleName(), new Grid3dDrawer());
+    public static void main(String... args) throws ParseException, IOException, InterruptedException {
+        Map<String, Function<Properties, IStatelessFrameDrawer>> drawers = new HashMap<>();
+        drawers.put(LineDrawer.class.getSimpleName(), LineDrawer::new);
+        drawers.put(ColumnDrawer.class.getSimpleName(), ColumnDrawer::new);
+        drawers.put(Grid3dDrawer.class.getSimpleName(), Grid3dDrawer::new);
 
         Options options = new Options();
         options.addOption("f", "file", true, "Wav file to generate animation for.");
         options.addOption("b", "buckets", true, "Number of frequency buckets (default: 10)");
         options.addOption("s", "speed", true, "Desired speed of animation in fps (default: 8)");
-        options.addOption("w", "window", true, "Time window in which frequency extrema will be generated (default: 10)");
+        options.addOption("w", "window", true, "Seconds around every frame, in live mode before it, in which frequency extrema are found (default: 10)");
         options.addOption("d", "drawer", true, "Name of the frame drawer class (default: ColumnDrawer)");
         options.addOption("p", "properties", true, "File with properties for given drawer. Right now ColumnDrawer, LineDrawer and Grid3dDrawer are supported.");
+        options.addOption("t", "threads", true, "Number of threads used for frequency analysis and drawing (default: 1)");
+        options.addOption("n", "fft-size", true, "Number of samples analysed per frame, frames overlap if it exceeds samples per frame (default: largest power of 2 within samples per frame)");
+        options.addOption("a", "analysis", true, "Spectrum analysis mode, FFT or SLIDING_DFT (default: FFT)");
+        options.addOption("m", "channels", true, "Channels to analyse: FIRST, MIX (average), ALL or MID_SIDE; ColumnDrawer and LineDrawer mirror two channels, other drawers merge them (default: FIRST)");
+        options.addOption("c", "cache", true, "Directory where spectra are cached, so later runs on the same file and analysis settings skip the analysis");
+        options.addOption("B", "batch", true, "Directory with audio files or manifest listing one file per line, all of them are rendered in one run");
+        options.addOption("j", "jobs", true, "Number of tracks rendered at the same time in batch mode, they share the threads (default: 1)");
+        options.addOption("l", "live", true, "Visualises live PCM from 'line' (default recording device), '-' (stdin) or a named pipe instead of a file");
+        options.addOption("F", "pcm-format", true, "Format of live PCM as sample rate,bits,channels of signed little endian samples (default: 44100,16,2)");
+        options.addOption("o", "output", true, "Output file, named pipe, directory of images or '-' (stdout) for raw frames (default: next to the audio file, in live mode a preview window or stdout)");
+        options.addOption("O", "sink", true, "Output format: MP4, RGB or YUV (raw rgb24 or yuvj420p frames), PNG or PPM (numbered images written in parallel) or PREVIEW (live window) (default: MP4, in live mode PREVIEW or RGB with --output)");
+        options.addOption("L", "latency", true, "Frames of live mode drawn later than this many milliseconds after their audio are dropped (default: 2 frames)");
+        options.addOption("S", "segments", true, "Number of time segments of the MP4 drawn and encoded in parallel, then joined without re-encoding (default: 1)");
+        options.addOption("M", "metrics", false, "Measures time and allocations of every stage, exposes them in JMX and writes them to <file>.metrics.json");
         options.addOption("h", "help", false, "Prints help message. If used with -d option provides Drawer Properties");
 
         CommandLineParser parser = new DefaultParser();
@@ -40,7 +68,7 @@ public class Main {
             if (cml.hasOption("d")) {
                 String drawerName = cml.getOptionValue("d");
                 if (drawers.containsKey(drawerName)) {
-                    System.out.println(MapToStringHelper.toString(drawers.get(drawerName).getOptions()));
+                    System.out.println(MapToStringHelper.toString(drawers.get(drawerName).apply(new Properties()).getOptions()));
                 } else {
                     throw new NotSupportedDrawerException(drawerName);
                 }
@@ -52,10 +80,10 @@ public class Main {
         }
 
         //File
-        if (!cml.hasOption("f")) {
-            throw new MissingOptionException(Collections.singletonList(options.getOption("f")));
+        if (!cml.hasOption("f") && !cml.hasOption("B") && !cml.hasOption("l")) {
+            throw new MissingOptionException(Arrays.asList(options.getOption("f"), options.getOption("B"),
+                    options.getOption("l")));
         }
-        File file = new File(cml.getOptionValue("file"));
 
         //FreqBuckets
         int noFreqBuckets = Integer.parseInt(cml.getOptionValue("b", "10"));
@@ -66,26 +94,131 @@ public class Main {
         //Extrema Window
         int extremaWindow = Integer.parseInt(cml.getOptionValue("w", "10"));
 
+        //Threads
+        int threads = Integer.parseInt(cml.getOptionValue("t", "1"));
+
+        //Analysis
+        int windowSize = Integer.parseInt(cml.getOptionValue("n", "0"));
+        AnalysisMode analysisMode = AnalysisMode.valueOf(cml.getOptionValue("a", "FFT"));
+        ChannelMode channelMode = ChannelMode.valueOf(cml.getOptionValue("m", "FIRST"));
+
+        //Cache
+        File cacheDirectory = cml.hasOption("c") ? new File(cml.getOptionValue("c")) : null;
+        boolean metricsEnabled = cml.hasOption("M");
+        int segments = Integer.parseInt(cml.getOptionValue("S", "1"));
+
         //Drawer
         String drawerName = cml.getOptionValue("d", "ColumnDrawer");
         if (!drawers.containsKey(drawerName)) {
             throw new NotSupportedDrawerException(drawerName);
         }
-        IFrameDrawer drawer = drawers.get(drawerName);
+        Function<Properties, IStatelessFrameDrawer> drawerFactory = drawers.get(drawerName);
 
         //Drawer properties
         Properties prop = new Properties();
         if (cml.hasOption("p")) {
             try (InputStream input = new FileInputStream(cml.getOptionValue("p"))) {
                 prop.load(input);
-                drawer.setProperties(prop);
             }
         }
 
+        //Output
+        String output = cml.getOptionValue("o");
+        FrameSinkType sinkType;
+        if (cml.hasOption("O")) {
+            sinkType = FrameSinkType.valueOf(cml.getOptionValue("O"));
+        } else if (cml.hasOption("l")) {
+            sinkType = output == null || output.equals("preview") ? FrameSinkType.PREVIEW : FrameSinkType.RGB;
+        } else {
+            sinkType = FrameSinkType.MP4;
+        }
+        if (output != null && cml.hasOption("B")) {
+            throw new IllegalArgumentException("Output of batch mode is written next to every track, --output cannot be used");
+        }
+        boolean outputToStdout = "-".equals(output);
+
+        //Live
+        if (cml.hasOption("l")) {
+            IAudioSource audioSource = openLiveSource(cml.getOptionValue("l"), cml.getOptionValue("F", "44100,16,2"));
+            IFrameSink frameSink = sinkType.open(output != null ? output : "-", fps, threads);
+            PreviewWindow previewWindow = frameSink instanceof PreviewWindow ? (PreviewWindow) frameSink : null;
+            LiveVisualiser liveVisualiser = new LiveVisualiser(audioSource, fps, noFreqBuckets, drawerFactory.apply(prop), frameSink);
+            liveVisualiser.setExtremaWindowSeconds(extremaWindow);
+            liveVisualiser.setWindowSize(windowSize);
+            liveVisualiser.setAnalysisMode(analysisMode);
+            liveVisualiser.setChannelMode(channelMode);
+            if (cml.hasOption("L")) {
+                liveVisualiser.setLatencyBudget(Long.parseLong(cml.getOptionValue("L")));
+            }
+            if (previewWindow != null) {
+                previewWindow.setCloseListener(liveVisualiser::stop);
+            }
+            liveVisualiser.run();
+            //Stdout may carry the frames
+            System.err.println("Live frames drawn: " + liveVisualiser.getDrawnFrames()
+                    + ", dropped: " + liveVisualiser.getDroppedFrames());
+            return;
+        }
+
+        //Every track gets its own drawer
+        Function<File, FreqVisualiser> visualiserFactory = file -> {
+            FreqVisualiser freqVisualiser = new FreqVisualiser(file, fps, noFreqBuckets);
+            freqVisualiser.setFrameDrawer(drawerFactory.apply(prop));
+            freqVisualiser.setExtremaWindowSeconds(extremaWindow);
+            freqVisualiser.setThreads(threads);
+            freqVisualiser.setWindowSize(windowSize);
+            freqVisualiser.setAnalysisMode(analysisMode);
+            freqVisualiser.setChannelMode(channelMode);
+            freqVisualiser.setCacheDirectory(cacheDirectory);
+            freqVisualiser.setMetricsEnabled(metricsEnabled);
+            freqVisualiser.setOutput(sinkType, output);
+            freqVisualiser.setSegments(segments);
+            if (outputToStdout) {
+                //Progress would corrupt the frames
+                freqVisualiser.setProgressListener((framesDone, framesInTotal) -> {
+                });
+            }
+            return freqVisualiser;
+        };
+
+        //Batch
+        if (cml.hasOption("B")) {
+            int jobs = Integer.parseInt(cml.getOptionValue("j", "1"));
+            List<File> tracks = BatchRenderer.listTracks(new File(cml.getOptionValue("B")));
+            BatchRenderer batchRenderer = new BatchRenderer(tracks, visualiserFactory, jobs, threads);
+            System.out.println(batchRenderer.render());
+            return;
+        }
+
         //Trigger generation
-        FreqVisualiser freqVisualiser = new FreqVisualiser(file, fps, noFreqBuckets);
-        freqVisualiser.setFrameDrawer(drawer);
-        freqVisualiser.setExtremaWindow(extremaWindow);
-        freqVisualiser.generate();
+        visualiserFactory.apply(new File(cml.getOptionValue("file"))).generate();
+    }
+
+    /**
+     * Opens the default recording line, stdin or a named pipe delivering signed little endian PCM.
+     */
+    private static IAudioSource openLiveSource(String input, String pcmFormat) throws IOException {
+        String[] format = pcmFormat.split(",");
+        if (format.length != 3) {
+            throw new IllegalArgumentException("PCM format needs to be sample rate,bits,channels: " + pcmFormat);
+        }
+        AudioFormat audioFormat = new AudioFormat(Float.parseFloat(format[0]), Integer.parseInt(format[1]),
+                Integer.parseInt(format[2]), true, false);
+
+        try {
+            AudioInputStream ais;
+            if (input.equals("line")) {
+                TargetDataLine line = AudioSystem.getTargetDataLine(audioFormat);
+                line.open(audioFormat);
+                line.start();
+                ais = new AudioInputStream(line);
+            } else {
+                InputStream in = input.equals("-") ? System.in : new FileInputStream(input);
+                ais = new AudioInputStream(in, audioFormat, AudioSystem.NOT_SPECIFIED);
+            }
+            return new MusicFileManager(ais);
+        } catch (LineUnavailableException | UnsupportedAudioFileException e) {
+            throw new IOException("Cannot open live audio " + input + ": " + e.getMessage(), e);
+        }
     }
 }
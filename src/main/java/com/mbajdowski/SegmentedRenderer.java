@@ -0,0 +1,175 @@
+package com.mbajdowski;
+
+import com.mbajdowski.drawer.FramePool;
+import com.mbajdowski.drawer.ISpectrumHistory;
+import com.mbajdowski.drawer.IStatelessFrameDrawer;
+import com.mbajdowski.metrics.Metrics;
+import com.mbajdowski.metrics.Stage;
+import com.mbajdowski.utils.IProgressListener;
+import com.mbajdowski.utils.SpectrumStore;
+import com.mbajdowski.video.Mp4Concatenator;
+import com.mbajdowski.video.PictureSequenceEncoder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Renders an animation in time segments drawn and encoded concurrently into separate MP4 files, which are
+ * then concatenated without re-encoding. Segments start at key frames of the encoder, so the concatenated
+ * video is encoded the same as in one piece. Segments get their drawers from the factory together with the history
+ * of all spectra. Adapted drawers which keep history themselves first draw the frames preceding the segment
+ * without encoding them. When a segment fails the others stop at their next frame, and segment files are
+ * deleted only after all segments have stopped writing them.
+ */
+public class SegmentedRenderer {
+
+    private final Supplier<IStatelessFrameDrawer> drawerFactory;
+    private final int drawerChannels;
+    private final int fps;
+    private Metrics metrics = Metrics.DISABLED;
+
+    public SegmentedRenderer(Supplier<IStatelessFrameDrawer> drawerFactory, int drawerChannels, int fps) {
+        this.drawerFactory = drawerFactory;
+        this.drawerChannels = drawerChannels;
+        this.fps = fps;
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * First frames of at most the given number of segments of equal length rounded up to the key frame
+     * interval, followed by the number of frames.
+     */
+    public static int[] splitFrames(int framesInTotal, int segments) {
+        int keyFrameInterval = PictureSequenceEncoder.KEY_FRAME_INTERVAL;
+        int segmentLength = (int) Math.ceil(framesInTotal / (double) segments);
+        segmentLength = Math.max((segmentLength + keyFrameInterval - 1) / keyFrameInterval, 1) * keyFrameInterval;
+
+        int count = Math.max((int) Math.ceil(framesInTotal / (double) segmentLength), 1);
+        int[] bounds = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            bounds[i] = Math.min(i * segmentLength, framesInTotal);
+        }
+        return bounds;
+    }
+
+    /**
+     * @param spectra spectra of all frames as passed to the drawer
+     * @param extrema minimum and maximum of every frame
+     */
+    public void render(SpectrumStore spectra, SpectrumStore extrema, int segments, File output,
+                       ExecutorService executor, IProgressListener progress) throws IOException, InterruptedException {
+        int framesInTotal = spectra.getFrameCount();
+        int[] bounds = splitFrames(framesInTotal, segments);
+        AtomicInteger framesDone = new AtomicInteger();
+        AtomicBoolean stopped = new AtomicBoolean();
+        List<File> segmentFiles = new ArrayList<>();
+        List<Future<?>> renderings = new ArrayList<>();
+        try {
+            for (int i = 0; i < bounds.length - 1; i++) {
+                File segmentFile = new File(output.getPath() + ".part" + i + ".mp4");
+                int from = bounds[i];
+                int to = bounds[i + 1];
+                segmentFiles.add(segmentFile);
+                renderings.add(executor.submit(() -> {
+                    renderSegment(spectra, extrema, from, to, segmentFile, stopped,
+                            () -> progress.progress(framesDone.incrementAndGet(), framesInTotal));
+                    return null;
+                }));
+            }
+            for (Future<?> rendering : renderings) {
+                rendering.get();
+            }
+
+            Mp4Concatenator.concatenate(segmentFiles, output, fps);
+        } catch (ExecutionException e) {
+            throw asIOException(e);
+        } finally {
+            stopped.set(true);
+            awaitSegments(renderings);
+            for (File segmentFile : segmentFiles) {
+                Files.deleteIfExists(segmentFile.toPath());
+            }
+        }
+    }
+
+    /**
+     * Waits until every segment has returned, so none of them is still writing its file. Cancelling would only
+     * interrupt them and mark them done while they may still be running.
+     */
+    private static void awaitSegments(List<Future<?>> renderings) {
+        boolean interrupted = false;
+        for (Future<?> rendering : renderings) {
+            while (true) {
+                try {
+                    rendering.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    //Failures of segments are reported by render
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void renderSegment(ISpectrumHistory history, SpectrumStore extrema, int from, int to, File segmentFile,
+                               AtomicBoolean stopped, Runnable frameDone) throws IOException {
+        if (stopped.get()) {
+            return;
+        }
+        IStatelessFrameDrawer drawer = drawerFactory.get();
+        drawer.setChannels(drawerChannels);
+        FramePool framePool = new FramePool(1);
+
+        int warmUp = drawer.isThreadSafe() ? 0 : Math.min(drawer.getHistoryLength(), from);
+        for (int frame = from - warmUp; frame < from && !stopped.get(); frame++) {
+            framePool.release(drawer.drawFrame(frame, history, extrema.get(frame), framePool));
+        }
+
+        try (PictureSequenceEncoder encoder = PictureSequenceEncoder.createSequenceEncoder(segmentFile, fps)) {
+            for (int frame = from; frame < to && !stopped.get(); frame++) {
+                long start = metrics.start();
+                BufferedImage image = drawer.drawFrame(frame, history, extrema.get(frame), framePool);
+                metrics.stop(Stage.DRAWING, start);
+
+                start = metrics.start();
+                encoder.write(image);
+                metrics.stop(Stage.ENCODING, start);
+                framePool.release(image);
+                frameDone.run();
+            }
+        }
+    }
+
+    private static IOException asIOException(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+}
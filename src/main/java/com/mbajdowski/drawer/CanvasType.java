@@ -0,0 +1,22 @@
+package com.mbajdowski.drawer;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * How drawers paint their frames, selected by the RENDERER property of the drawer.
+ */
+public enum CanvasType {
+    //Graphics2D of the frame
+    JAVA2D,
+    //Software rasterizer writing into the pixels of the frame, drawing the same pixels as Java2D
+    SOFTWARE;
+
+    public ICanvas createCanvas(BufferedImage imgFrame) {
+        switch (this) {
+            case SOFTWARE:
+                return PixelCanvas.forFrame(imgFrame);
+            default:
+                return new Java2dCanvas(imgFrame);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.mbajdowski.drawer;
+
+/**
+ * Arrangements of spectra of several channels concatenated in one array.
+ */
+public final class ChannelLayout {
+
+    private ChannelLayout() {
+    }
+
+    /**
+     * Bucket-wise highest value across channels, for drawers which render a single spectrum.
+     */
+    public static int[] merge(int[] fftData, int channels) {
+        int noOfBuckets = fftData.length / channels;
+        int[] result = new int[noOfBuckets];
+        System.arraycopy(fftData, 0, result, 0, noOfBuckets);
+        for (int c = 1; c < channels; c++) {
+            for (int i = 0; i < noOfBuckets; i++) {
+                result[i] = Math.max(result[i], fftData[c * noOfBuckets + i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stereo spectra side by side with low frequencies in the middle: the first channel reversed
+     * on the left half, the second one on the right half. Single channel spectra are returned as they are.
+     */
+    public static int[] mirror(int[] fftData, int channels) {
+        if (channels == 1) {
+            return fftData;
+        }
+        int noOfBuckets = fftData.length / 2;
+        int[] result = new int[fftData.length];
+        for (int i = 0; i < noOfBuckets; i++) {
+            result[noOfBuckets - 1 - i] = fftData[i];
+        }
+        System.arraycopy(fftData, noOfBuckets, result, noOfBuckets, noOfBuckets);
+        return result;
+    }
+}
@@ -9,7 +9,7 @@ import java.util.logging.Level;
 
 import static com.mbajdowski.utils.MathHelper.scaleValueToRange;
 
-public class ColumnDrawer implements IFrameDrawer {
+public class ColumnDrawer implements IStatelessFrameDrawer {
 
     private static final String NO_OF_BLOCKS_IN_COLUMN = "NO_OF_BLOCKS_IN_COLUMN";
     private static final String NO_OF_BLOCKS_IN_COLUMN_DOC = "Number of blocks in one column representing the strength of the frequency";
@@ -21,6 +21,8 @@ public class ColumnDrawer implements IFrameDrawer {
     private static final String IMG_HEIGHT_DOC = "Image height in pixels";
     private static final String IMG_WIDTH = "IMG_WIDTH";
     private static final String IMG_WIDTH_DOC = "Image width in pixels";
+    private static final String RENDERER = "RENDERER";
+    private static final String RENDERER_DOC = "How frames are drawn: JAVA2D or SOFTWARE, which writes the same pixels straight into the frame";
     private static final java.util.logging.Logger log =
             java.util.logging.Logger.getLogger(ColumnDrawer.class.getName());
     private static final HashMap<String, String> options;
@@ -32,6 +34,7 @@ public class ColumnDrawer implements IFrameDrawer {
         options.put(COLUMN_PADDING, COLUMN_PADDING_DOC);
         options.put(IMG_HEIGHT, IMG_HEIGHT_DOC);
         options.put(IMG_WIDTH, IMG_WIDTH_DOC);
+        options.put(RENDERER, RENDERER_DOC);
     }
 
     private int imgHeight;
@@ -41,7 +44,9 @@ public class ColumnDrawer implements IFrameDrawer {
     private int base;
     private int blockHeight;
     private int recHeight;
+    private CanvasType canvasType;
     private Properties properties;
+    private int channels = 1;
 
     public ColumnDrawer() {
         this(getDefaultProperties());
@@ -58,6 +63,7 @@ public class ColumnDrawer implements IFrameDrawer {
         properties.setProperty(COLUMN_PADDING, "0.1f");
         properties.setProperty(IMG_HEIGHT, "720");
         properties.setProperty(IMG_WIDTH, "1280");
+        properties.setProperty(RENDERER, CanvasType.JAVA2D.name());
 
         return properties;
     }
@@ -87,6 +93,7 @@ public class ColumnDrawer implements IFrameDrawer {
 
         this.imgHeight = Integer.parseInt(this.properties.getProperty(IMG_HEIGHT));
         this.imgWidth = Integer.parseInt(this.properties.getProperty(IMG_WIDTH));
+        this.canvasType = CanvasType.valueOf(this.properties.getProperty(RENDERER));
         this.noOfBlocksInColumn = Integer.parseInt(this.properties.getProperty(NO_OF_BLOCKS_IN_COLUMN));
         float columnPadding = Float.parseFloat(this.properties.getProperty(COLUMN_PADDING));
         float columnBlocksPadding = Float.parseFloat(this.properties.getProperty(COLUMN_BLOCK_PADDING));
@@ -97,34 +104,44 @@ public class ColumnDrawer implements IFrameDrawer {
         this.recHeight = (int) ((1 - columnBlocksPadding) * this.blockHeight);
     }
 
+    //Stereo spectra are mirrored around the middle of the image
     @Override
-    public BufferedImage drawFFT(int[] fftData, int[] extrema) {
-        int barWidthInPix = imgWidth / (fftData.length * 2 + 1);
+    public boolean supportsChannels(int channels) {
+        return channels == 1 || channels == 2;
+    }
 
-        BufferedImage imgFrame = new BufferedImage(
-                imgWidth,
-                imgHeight,
-                BufferedImage.TYPE_INT_RGB);
+    @Override
+    public void setChannels(int channels) {
+        IStatelessFrameDrawer.super.setChannels(channels);
+        this.channels = channels;
+    }
 
-        Graphics g = imgFrame.getGraphics();
+    @Override
+    public BufferedImage drawFrame(int frame, ISpectrumHistory history, int[] extrema, FramePool framePool) {
+        BufferedImage imgFrame = framePool.acquire(imgWidth, imgHeight);
+        int[] columns = ChannelLayout.mirror(history.get(frame), channels);
+        int barWidthInPix = imgWidth / (columns.length * 2 + 1);
 
-        for (int i = 0; i < fftData.length; i++) {
-            int height = scaleValueToRange(fftData[i], extrema[1], extrema[0], maxOut, 0);
-            int noOfBlocks = Math.min((int) Math.ceil(height / (double) this.blockHeight), noOfBlocksInColumn);
+        ICanvas canvas = canvasType.createCanvas(imgFrame);
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                int height = scaleValueToRange(columns[i], extrema[1], extrema[0], maxOut, 0);
+                int noOfBlocks = Math.min((int) Math.ceil(height / (double) this.blockHeight), noOfBlocksInColumn);
 
-            int blockColumnHeight = noOfBlocks * this.blockHeight;
+                int blockColumnHeight = noOfBlocks * this.blockHeight;
 
-            int x = barWidthInPix * (2 * i + 1);
-            int y = imgHeight - blockColumnHeight - this.base;
+                int x = barWidthInPix * (2 * i + 1);
+                int y = imgHeight - blockColumnHeight - this.base;
 
-            drawColumn(g, x, y, barWidthInPix, noOfBlocks);
+                drawColumn(canvas, x, y, barWidthInPix, noOfBlocks);
+            }
+        } finally {
+            canvas.dispose();
         }
-        g.dispose();
-
         return imgFrame;
     }
 
-    private void drawColumn(Graphics g, int x, int y, int barWidthInPix, int noOfBlocks) {
+    private void drawColumn(ICanvas canvas, int x, int y, int barWidthInPix, int noOfBlocks) {
         int currentY = y;
         float[] sections = {0.2f, 0.8f};
         Color[] colors = {Color.RED, Color.YELLOW, Color.GREEN};
@@ -133,14 +150,14 @@ public class ColumnDrawer implements IFrameDrawer {
             //int index = this.noOfBlocksInColumn-i;
             int index = i + diff;
             if (index / (float) noOfBlocksInColumn < sections[0]) {
-                g.setColor(colors[0]);
+                canvas.setColor(colors[0]);
             } else if (index / (float) noOfBlocksInColumn < sections[1]) {
-                g.setColor(colors[1]);
+                canvas.setColor(colors[1]);
             } else {
-                g.setColor(colors[2]);
+                canvas.setColor(colors[2]);
             }
 
-            g.fillRect(x, currentY, barWidthInPix, this.recHeight);
+            canvas.fillRect(x, currentY, barWidthInPix, this.recHeight);
         }
     }
 
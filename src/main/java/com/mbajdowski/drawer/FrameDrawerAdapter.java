@@ -0,0 +1,60 @@
+package com.mbajdowski.drawer;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs an {@link IFrameDrawer} where an {@link IStatelessFrameDrawer} is expected. The drawer gets only
+ * the spectrum of the drawn frame, so drawers which are not thread safe still need all frames in order
+ * on a single thread.
+ */
+public class FrameDrawerAdapter implements IStatelessFrameDrawer {
+
+    private final IFrameDrawer frameDrawer;
+
+    public FrameDrawerAdapter(IFrameDrawer frameDrawer) {
+        this.frameDrawer = frameDrawer;
+    }
+
+    @Override
+    public BufferedImage drawFrame(int frame, ISpectrumHistory history, int[] extrema, FramePool framePool) {
+        return frameDrawer.drawFFT(history.get(frame), extrema, framePool);
+    }
+
+    @Override
+    public Map<String, String> getOptions() {
+        return frameDrawer.getOptions();
+    }
+
+    @Override
+    public Properties getProperties() {
+        return frameDrawer.getProperties();
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        frameDrawer.setProperties(properties);
+    }
+
+    //Frames the drawer needs to see before the drawn one to be in the same state
+    @Override
+    public int getHistoryLength() {
+        return frameDrawer.getHistoryLength();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return frameDrawer.isThreadSafe();
+    }
+
+    @Override
+    public boolean supportsChannels(int channels) {
+        return frameDrawer.supportsChannels(channels);
+    }
+
+    @Override
+    public void setChannels(int channels) {
+        frameDrawer.setChannels(channels);
+    }
+}
@@ -0,0 +1,42 @@
+package com.mbajdowski.drawer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of reusable TYPE_INT_RGB frames. Frames are cleared to black when acquired
+ * and should be released once the encoder is done with them.
+ */
+public class FramePool {
+
+    private final BlockingQueue<BufferedImage> frames;
+
+    public FramePool(int capacity) {
+        this.frames = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public BufferedImage acquire(int width, int height) {
+        BufferedImage frame = frames.poll();
+        if (frame == null || frame.getWidth() != width || frame.getHeight() != height) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+
+        int[] pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, 0);
+        return frame;
+    }
+
+    public void release(BufferedImage frame) {
+        if (frame.getType() == BufferedImage.TYPE_INT_RGB) {
+            //Frames over the capacity are left for the garbage collector
+            frames.offer(frame);
+        }
+    }
+
+    public int size() {
+        return frames.size();
+    }
+}
@@ -2,18 +2,21 @@ package com.mbajdowski.drawer;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.List;
-import java.util.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
 import java.util.logging.Level;
 
 import static com.mbajdowski.utils.MathHelper.scaleValueToRange;
 
-public class Grid3dDrawer implements IFrameDrawer {
+public class Grid3dDrawer implements IStatelessFrameDrawer {
 
     private static final String IMG_HEIGHT = "IMG_HEIGHT";
     private static final String IMG_HEIGHT_DOC = "Image height in pixels";
     private static final String IMG_WIDTH = "IMG_WIDTH";
     private static final String IMG_WIDTH_DOC = "Image width in pixels";
+    private static final String RENDERER = "RENDERER";
+    private static final String RENDERER_DOC = "How frames are drawn: JAVA2D or SOFTWARE, which writes the same pixels straight into the frame";
     private static final String DEPTH_VALUE = "DEPTH_VALUE";
     private static final String DEPTH_VALUE_DOC = "How deep should be the grid (how many previous data should be displayed)";
     private static final String STROKE_SIZE = "STROKE_SIZE";
@@ -35,6 +38,7 @@ public class Grid3dDrawer implements IFrameDrawer {
         options.put(STROKE_COLOR_RGB, STROKE_COLOR_RGB_DOC);
         options.put(IMG_HEIGHT, IMG_HEIGHT_DOC);
         options.put(IMG_WIDTH, IMG_WIDTH_DOC);
+        options.put(RENDERER, RENDERER_DOC);
         options.put(SIZE_COEFFICIENT_X, SIZE_COEFFICIENT_X_DOC);
         options.put(SIZE_COEFFICIENT_Y, SIZE_COEFFICIENT_Y_DOC);
     }
@@ -46,8 +50,22 @@ public class Grid3dDrawer implements IFrameDrawer {
     private Color strokeColor;
     private double sizeCoefficientX;
     private double sizeCoefficientY;
-    private List<int[]> pastData = new LinkedList<>();
+    private CanvasType canvasType;
     private Properties properties;
+    private double[] layerSizeX;
+    private double[] layerSizeY;
+    private double[] layerMaxY;
+    private volatile int[][] columns;
+    //Y coordinates of the current and the previous row, every drawing thread projects into its own
+    private final ThreadLocal<int[][]> rowsY = new ThreadLocal<>();
+
+    public Grid3dDrawer() {
+        this(getDefaultProperties());
+    }
+
+    public Grid3dDrawer(Properties properties) {
+        this.setProperties(properties);
+    }
 
     public static Properties getDefaultProperties() {
         Properties properties = new Properties();
@@ -58,67 +76,121 @@ public class Grid3dDrawer implements IFrameDrawer {
         properties.setProperty(SIZE_COEFFICIENT_Y, "0.8");
         properties.setProperty(IMG_HEIGHT, "720");
         properties.setProperty(IMG_WIDTH, "1280");
+        properties.setProperty(RENDERER, CanvasType.JAVA2D.name());
 
         return properties;
     }
 
+    //Grid rows are the preceding frames
     @Override
-    public BufferedImage drawFFT(int[] fftData, int[] extrema) {
-        BufferedImage imgFrame = new BufferedImage(
-                imgWidth,
-                imgHeight,
-                BufferedImage.TYPE_INT_RGB);
-
-        Graphics2D g = (Graphics2D) imgFrame.getGraphics();
-        g.setColor(this.strokeColor);
-
-        pastData.add(fftData);
-        if (pastData.size() > depth + 1) {
-            pastData.remove(0);
-        }
-        int[][] prevPoints = null;
-        for (int i = 0; i < pastData.size(); i++) {
-            int currentStrokeSize = scaleValueToRange(i, pastData.size() - 1, 0, this.strokeSize, 1);
-            g.setStroke(new BasicStroke(currentStrokeSize));
-            int[][] points = generatePoints(pastData.get(i), extrema, pastData.size() - i - 1);
-            if (i != 0) {
-                for (int j = 0; j < points[0].length; j++) {
-                    g.drawLine(points[0][j], points[1][j], prevPoints[0][j], prevPoints[1][j]);
+    public int getHistoryLength() {
+        return depth;
+    }
+
+    @Override
+    public BufferedImage drawFrame(int frame, ISpectrumHistory history, int[] extrema, FramePool framePool) {
+        BufferedImage imgFrame = framePool.acquire(imgWidth, imgHeight);
+        ICanvas canvas = canvasType.createCanvas(imgFrame);
+        try {
+            canvas.setColor(this.strokeColor);
+
+            //The oldest row is drawn first at the back of the grid
+            int firstFrame = Math.max(frame - depth, history.getFirstFrame());
+            int rows = frame - firstFrame + 1;
+            int[][] columns = null;
+            int[][] rowsY = null;
+            for (int i = 0; i < rows; i++) {
+                int[] data = history.get(firstFrame + i);
+                if (columns == null) {
+                    columns = getColumns(data.length);
+                    rowsY = getRowsY(data.length);
+                }
+                int layer = rows - i - 1;
+                int[] x = columns[layer];
+                int[] y = rowsY[i & 1];
+                projectRow(data, extrema, layer, y);
+
+                canvas.setStrokeWidth(scaleValueToRange(i, rows - 1, 0, this.strokeSize, 1));
+                if (i != 0) {
+                    int[] prevX = columns[layer + 1];
+                    int[] prevY = rowsY[(i - 1) & 1];
+                    for (int j = 0; j < x.length; j++) {
+                        canvas.drawLine(x[j], y[j], prevX[j], prevY[j]);
+                    }
                 }
+                canvas.setColor(Color.BLACK);
+                canvas.fillPolygon(x, y, x.length);
+                canvas.setColor(this.strokeColor);
+                canvas.drawPolyline(x, y, x.length);
             }
-            g.setColor(Color.BLACK);
-            g.fillPolygon(points[0], points[1], points[0].length);
-            g.setColor(this.strokeColor);
-            g.drawPolyline(points[0], points[1], points[0].length);
-
-            prevPoints = points;
+        } finally {
+            canvas.dispose();
         }
-
-        g.dispose();
         return imgFrame;
     }
 
-    private int[][] generatePoints(int[] data, int[] extrema, int index) {
-        int[][] points = new int[data.length + 2][data.length + 2];
-        double sizeX = Math.pow(this.sizeCoefficientX, index) * imgWidth;
-        double sizeY = Math.pow(this.sizeCoefficientY, index) * imgHeight;
-        double gapX = imgWidth - sizeX;
-        double gapY = imgHeight - sizeY;
-
-        double maxX = imgWidth - 0.5 * gapX;
-        double minX = 0.5 * gapX;
-        double maxY = imgHeight - 0.5 * gapY;
+    private void projectRow(int[] data, int[] extrema, int layer, int[] y) {
+        double maxY = layerMaxY[layer];
+        int sizeY = (int) layerSizeY[layer];
 
-        points[0][0] = (int) minX;
-        points[1][0] = (int) maxY;
+        y[0] = (int) maxY;
         for (int i = 0; i < data.length; i++) {
-            points[0][i + 1] = (int) (sizeX / (data.length + 1) * (i + 1) + minX);
-            points[1][i + 1] = (int) (maxY - scaleValueToRange(data[i], extrema[1], extrema[0], (int) sizeY, 0));
+            y[i + 1] = (int) (maxY - scaleValueToRange(data[i], extrema[1], extrema[0], sizeY, 0));
+        }
+        y[y.length - 1] = (int) maxY;
+    }
+
+    /**
+     * X coordinates of the points of every layer of the grid, they depend only on the number of values.
+     */
+    private int[][] getColumns(int noOfValues) {
+        int[][] columns = this.columns;
+        if (columns != null && columns[0].length == noOfValues + 2) {
+            return columns;
         }
-        points[0][points[0].length - 1] = (int) maxX;
-        points[1][points[1].length - 1] = (int) maxY;
 
-        return points;
+        columns = new int[depth + 1][noOfValues + 2];
+        for (int layer = 0; layer <= depth; layer++) {
+            double sizeX = layerSizeX[layer];
+            double gapX = imgWidth - sizeX;
+            double maxX = imgWidth - 0.5 * gapX;
+            double minX = 0.5 * gapX;
+
+            int[] x = columns[layer];
+            x[0] = (int) minX;
+            for (int i = 0; i < noOfValues; i++) {
+                x[i + 1] = (int) (sizeX / (noOfValues + 1) * (i + 1) + minX);
+            }
+            x[x.length - 1] = (int) maxX;
+        }
+        //Drawing threads computing the same columns concurrently is harmless
+        this.columns = columns;
+        return columns;
+    }
+
+    private int[][] getRowsY(int noOfValues) {
+        int[][] rowsY = this.rowsY.get();
+        if (rowsY == null || rowsY[0].length != noOfValues + 2) {
+            rowsY = new int[2][noOfValues + 2];
+            this.rowsY.set(rowsY);
+        }
+        return rowsY;
+    }
+
+    /**
+     * Perspective of every layer, which is the same in all frames.
+     */
+    private void createLayers() {
+        layerSizeX = new double[depth + 1];
+        layerSizeY = new double[depth + 1];
+        layerMaxY = new double[depth + 1];
+        for (int layer = 0; layer <= depth; layer++) {
+            layerSizeX[layer] = Math.pow(this.sizeCoefficientX, layer) * imgWidth;
+            layerSizeY[layer] = Math.pow(this.sizeCoefficientY, layer) * imgHeight;
+            double gapY = imgHeight - layerSizeY[layer];
+            layerMaxY[layer] = imgHeight - 0.5 * gapY;
+        }
+        columns = null;
     }
 
     @Override
@@ -146,11 +218,13 @@ public class Grid3dDrawer implements IFrameDrawer {
 
         this.imgHeight = Integer.parseInt(this.properties.getProperty(IMG_HEIGHT));
         this.imgWidth = Integer.parseInt(this.properties.getProperty(IMG_WIDTH));
+        this.canvasType = CanvasType.valueOf(this.properties.getProperty(RENDERER));
         this.depth = Integer.parseInt(this.properties.getProperty(DEPTH_VALUE));
         this.strokeSize = Integer.parseInt(this.properties.getProperty(STROKE_SIZE));
         String[] rgb = this.getProperties().getProperty(STROKE_COLOR_RGB).split(",");
         this.strokeColor = new Color(Integer.parseInt(rgb[0]), Integer.parseInt(rgb[1]), Integer.parseInt(rgb[2]));
         this.sizeCoefficientX = Double.parseDouble(this.properties.getProperty(SIZE_COEFFICIENT_X));
         this.sizeCoefficientY = Double.parseDouble(this.properties.getProperty(SIZE_COEFFICIENT_Y));
+        createLayers();
     }
 }
@@ -0,0 +1,30 @@
+package com.mbajdowski.drawer;
+
+import java.awt.Color;
+
+/**
+ * Drawing operations used by the drawers, backed by Java2D or by {@link PixelCanvas} writing straight
+ * into the pixels of the frame. Coordinates are integer pixels as in {@link java.awt.Graphics}.
+ */
+public interface ICanvas {
+
+    void setColor(Color color);
+
+    /**
+     * Width of the lines in pixels, 0 and 1 draw the thinnest lines.
+     */
+    void setStrokeWidth(int width);
+
+    void fillRect(int x, int y, int width, int height);
+
+    void drawLine(int x1, int y1, int x2, int y2);
+
+    void drawPolyline(int[] xPoints, int[] yPoints, int nPoints);
+
+    /**
+     * Fills the polygon with the even-odd rule.
+     */
+    void fillPolygon(int[] xPoints, int[] yPoints, int nPoints);
+
+    void dispose();
+}
@@ -4,14 +4,56 @@ import java.awt.image.BufferedImage;
 import java.util.Map;
 import java.util.Properties;
 
+/**
+ * Drawer which may keep the history of frames itself, so frames are drawn in order. It is run by the
+ * pipelines through {@link FrameDrawerAdapter}, drawers without state implement {@link IStatelessFrameDrawer}.
+ */
 public interface IFrameDrawer {
 
     BufferedImage drawFFT(int[] fftData, int[] extrema);
 
+    /**
+     * Draws the frame into an image acquired from the pool. The caller releases the image
+     * back to the pool when it is no longer used. Drawers which do not support pooling allocate a new image.
+     */
+    default BufferedImage drawFFT(int[] fftData, int[] extrema, FramePool framePool) {
+        return drawFFT(fftData, extrema);
+    }
+
     Map<String, String> getOptions();
 
     Properties getProperties();
 
     void setProperties(Properties properties);
 
+    /**
+     * Drawers which keep no history between frames can draw several frames concurrently.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Number of preceding frames which affect the drawn one. Drawing that many frames first puts the drawer
+     * into the same state as drawing all of them, so parts of the animation can be rendered independently.
+     * Drawers which keep history without declaring it depend on all preceding frames.
+     */
+    default int getHistoryLength() {
+        return isThreadSafe() ? 0 : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Drawers supporting several channels get the spectra of all channels concatenated in fftData,
+     * others get the channels merged with {@link ChannelLayout#merge(int[], int)}.
+     */
+    default boolean supportsChannels(int channels) {
+        return channels == 1;
+    }
+
+    default void setChannels(int channels) {
+        if (!supportsChannels(channels)) {
+            throw new IllegalArgumentException("Drawer does not support " + channels + " channels");
+        }
+    }
+
 }
@@ -0,0 +1,19 @@
+package com.mbajdowski.drawer;
+
+/**
+ * Read-only view of the spectra of consecutive frames as passed to the drawers, addressed by frame index.
+ */
+public interface ISpectrumHistory {
+
+    /**
+     * First frame whose spectrum is available.
+     */
+    int getFirstFrame();
+
+    /**
+     * Frame following the last available one.
+     */
+    int getEndFrame();
+
+    int[] get(int frame);
+}
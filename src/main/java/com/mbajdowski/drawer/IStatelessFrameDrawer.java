@@ -0,0 +1,58 @@
+package com.mbajdowski.drawer;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Draws a frame from its spectrum and the spectra of the preceding frames passed with it, without keeping
+ * anything between frames. Frames can be drawn concurrently, in any order and by several instances.
+ * Drawers keeping history themselves implement {@link IFrameDrawer} and are wrapped in {@link FrameDrawerAdapter}.
+ */
+public interface IStatelessFrameDrawer {
+
+    /**
+     * Draws the frame into an image acquired from the pool. The caller releases the image
+     * back to the pool when it is no longer used.
+     *
+     * @param frame   index of the drawn frame
+     * @param history spectra of the drawn frame and up to {@link #getHistoryLength()} preceding frames,
+     *                fewer at the start of the animation
+     */
+    BufferedImage drawFrame(int frame, ISpectrumHistory history, int[] extrema, FramePool framePool);
+
+    Map<String, String> getOptions();
+
+    Properties getProperties();
+
+    void setProperties(Properties properties);
+
+    /**
+     * Number of preceding frames drawn together with the current one. Drawers which are not thread safe
+     * keep the history themselves and get only the spectrum of the drawn frame.
+     */
+    default int getHistoryLength() {
+        return 0;
+    }
+
+    /**
+     * Only adapted drawers keeping history themselves need to draw the frames in order on a single thread.
+     */
+    default boolean isThreadSafe() {
+        return true;
+    }
+
+    /**
+     * Drawers supporting several channels get the spectra of all channels concatenated,
+     * others get the channels merged with {@link ChannelLayout#merge(int[], int)}.
+     */
+    default boolean supportsChannels(int channels) {
+        return channels == 1;
+    }
+
+    default void setChannels(int channels) {
+        if (!supportsChannels(channels)) {
+            throw new IllegalArgumentException("Drawer does not support " + channels + " channels");
+        }
+    }
+}
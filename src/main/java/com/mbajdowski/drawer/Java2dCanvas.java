@@ -0,0 +1,62 @@
+package com.mbajdowski.drawer;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Canvas drawing through the {@link Graphics2D} of the frame.
+ */
+public class Java2dCanvas implements ICanvas {
+
+    //Strokes are immutable, the usual widths are shared by all canvases
+    private static final BasicStroke[] STROKES = new BasicStroke[16];
+
+    static {
+        for (int width = 0; width < STROKES.length; width++) {
+            STROKES[width] = new BasicStroke(width);
+        }
+    }
+
+    private final Graphics2D g;
+
+    public Java2dCanvas(BufferedImage imgFrame) {
+        this.g = (Graphics2D) imgFrame.getGraphics();
+    }
+
+    @Override
+    public void setColor(Color color) {
+        g.setColor(color);
+    }
+
+    @Override
+    public void setStrokeWidth(int width) {
+        g.setStroke(width >= 0 && width < STROKES.length ? STROKES[width] : new BasicStroke(width));
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        g.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        g.drawLine(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+        g.drawPolyline(xPoints, yPoints, nPoints);
+    }
+
+    @Override
+    public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        g.fillPolygon(xPoints, yPoints, nPoints);
+    }
+
+    @Override
+    public void dispose() {
+        g.dispose();
+    }
+}
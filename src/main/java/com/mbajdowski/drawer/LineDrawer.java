@@ -2,18 +2,21 @@ package com.mbajdowski.drawer;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.List;
-import java.util.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
 import java.util.logging.Level;
 
 import static com.mbajdowski.utils.MathHelper.scaleValueToRange;
 
-public class LineDrawer implements IFrameDrawer {
+public class LineDrawer implements IStatelessFrameDrawer {
 
     private static final String IMG_HEIGHT = "IMG_HEIGHT";
     private static final String IMG_HEIGHT_DOC = "Image height in pixels";
     private static final String IMG_WIDTH = "IMG_WIDTH";
     private static final String IMG_WIDTH_DOC = "Image width in pixels";
+    private static final String RENDERER = "RENDERER";
+    private static final String RENDERER_DOC = "How frames are drawn: JAVA2D or SOFTWARE, which writes the same pixels straight into the frame";
     private static final String SHADOW_COUNT = "SHADOW_COUNT";
     private static final String SHADOW_COUNT_DOC = "Number of shadow draws that remains after the main line";
     private static final String STROKE_SIZE = "STROKE_SIZE";
@@ -31,6 +34,7 @@ public class LineDrawer implements IFrameDrawer {
         options.put(STROKE_COLOR_RGB, STROKE_COLOR_RGB_DOC);
         options.put(IMG_HEIGHT, IMG_HEIGHT_DOC);
         options.put(IMG_WIDTH, IMG_WIDTH_DOC);
+        options.put(RENDERER, RENDERER_DOC);
     }
 
     private int imgHeight;
@@ -38,15 +42,15 @@ public class LineDrawer implements IFrameDrawer {
     private int shadowCount;
     private int strokeSize;
     private Color strokeColor;
-    private List<int[]> list;
+    private CanvasType canvasType;
     private Properties properties;
+    private int channels = 1;
 
     public LineDrawer() {
         this(getDefaultProperties());
     }
 
     public LineDrawer(Properties properties) {
-        this.list = new LinkedList<>();
         this.setProperties(properties);
     }
 
@@ -57,51 +61,65 @@ public class LineDrawer implements IFrameDrawer {
         properties.setProperty(STROKE_COLOR_RGB, "255,255,255");
         properties.setProperty(IMG_HEIGHT, "720");
         properties.setProperty(IMG_WIDTH, "1280");
+        properties.setProperty(RENDERER, CanvasType.JAVA2D.name());
 
         return properties;
     }
 
+    //Shadows are the preceding frames
     @Override
-    public BufferedImage drawFFT(int[] fftData, int[] extrema) {
-        BufferedImage imgFrame = new BufferedImage(
-                imgWidth,
-                imgHeight,
-                BufferedImage.TYPE_INT_RGB);
-
-        Graphics2D g = (Graphics2D) imgFrame.getGraphics();
-        g.setStroke(new BasicStroke(strokeSize));
-
-        list.add(fftData);
-        if (list.size() > shadowCount + 1) {
-            list.remove(0);
-        }
+    public int getHistoryLength() {
+        return shadowCount;
+    }
+
+    //Stereo spectra are mirrored around the middle of the image
+    @Override
+    public boolean supportsChannels(int channels) {
+        return channels == 1 || channels == 2;
+    }
 
-        int divider = shadowCount + 1;
-        Color colorDelta = new Color(
-                strokeColor.getRed() / divider,
-                strokeColor.getGreen() / divider,
-                strokeColor.getBlue() / divider);
-
-        Color currentColor = Color.BLACK;
-        for (int[] data : list) {
-            currentColor = new Color(
-                    currentColor.getRed() + colorDelta.getRed(),
-                    currentColor.getGreen() + colorDelta.getGreen(),
-                    currentColor.getBlue() + colorDelta.getBlue());
-            g.setColor(currentColor);
-
-            int[] lastPoint = {0, imgHeight};
-            for (int i = 0; i < data.length; i++) {
-                int newX = imgWidth / (data.length + 1) * (i + 1);
-                int newY = imgHeight - scaleValueToRange(data[i], extrema[1], extrema[0], imgHeight, 0);
-                int[] newPoint = {newX, newY};
-                g.drawLine(lastPoint[0], lastPoint[1], newPoint[0], newPoint[1]);
-                lastPoint = newPoint;
+    @Override
+    public void setChannels(int channels) {
+        IStatelessFrameDrawer.super.setChannels(channels);
+        this.channels = channels;
+    }
+
+    @Override
+    public BufferedImage drawFrame(int frame, ISpectrumHistory history, int[] extrema, FramePool framePool) {
+        BufferedImage imgFrame = framePool.acquire(imgWidth, imgHeight);
+        ICanvas canvas = canvasType.createCanvas(imgFrame);
+        try {
+            canvas.setStrokeWidth(strokeSize);
+
+            int divider = shadowCount + 1;
+            Color colorDelta = new Color(
+                    strokeColor.getRed() / divider,
+                    strokeColor.getGreen() / divider,
+                    strokeColor.getBlue() / divider);
+
+            Color currentColor = Color.BLACK;
+            //The oldest shadow is the darkest
+            for (int past = Math.max(frame - shadowCount, history.getFirstFrame()); past <= frame; past++) {
+                int[] data = ChannelLayout.mirror(history.get(past), channels);
+                currentColor = new Color(
+                        currentColor.getRed() + colorDelta.getRed(),
+                        currentColor.getGreen() + colorDelta.getGreen(),
+                        currentColor.getBlue() + colorDelta.getBlue());
+                canvas.setColor(currentColor);
+
+                int[] lastPoint = {0, imgHeight};
+                for (int i = 0; i < data.length; i++) {
+                    int newX = imgWidth / (data.length + 1) * (i + 1);
+                    int newY = imgHeight - scaleValueToRange(data[i], extrema[1], extrema[0], imgHeight, 0);
+                    int[] newPoint = {newX, newY};
+                    canvas.drawLine(lastPoint[0], lastPoint[1], newPoint[0], newPoint[1]);
+                    lastPoint = newPoint;
+                }
+                canvas.drawLine(lastPoint[0], lastPoint[1], imgWidth, imgHeight);
             }
-            g.drawLine(lastPoint[0], lastPoint[1], imgWidth, imgHeight);
+        } finally {
+            canvas.dispose();
         }
-
-        g.dispose();
         return imgFrame;
     }
 
@@ -130,6 +148,7 @@ public class LineDrawer implements IFrameDrawer {
 
         this.imgHeight = Integer.parseInt(this.properties.getProperty(IMG_HEIGHT));
         this.imgWidth = Integer.parseInt(this.properties.getProperty(IMG_WIDTH));
+        this.canvasType = CanvasType.valueOf(this.properties.getProperty(RENDERER));
         this.shadowCount = Integer.parseInt(this.properties.getProperty(SHADOW_COUNT));
         this.strokeSize = Integer.parseInt(this.properties.getProperty(STROKE_SIZE));
 
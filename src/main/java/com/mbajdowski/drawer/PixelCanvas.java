@@ -0,0 +1,558 @@
+package com.mbajdowski.drawer;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Software rasterizer writing straight into the int pixels of a TYPE_INT_RGB frame, without the per call
+ * validation of Java2D. Output follows the non antialiased rendering of Java2D pixel by pixel: thin lines are
+ * drawn with Bresenham's algorithm, thick lines are filled as parallelograms, and polygons as well as
+ * the outlines of thick polylines are filled by scanlines stepping the edges the same way as Java2D.
+ * Scratch arrays are kept by the canvas, drawing allocates only when a polygon has more points than before.
+ * Drawers take the canvas of their thread from {@link #forFrame(BufferedImage)}, so the arrays outlive the frame.
+ */
+public class PixelCanvas implements ICanvas {
+
+    //Java2D normalizes the coordinates of shapes by a quarter of a pixel
+    private static final double NORMALIZE_OFFSET = 0.25;
+    //Fraction of a pixel represented by the error of the edges
+    private static final int ERROR_STEP = Integer.MAX_VALUE;
+    private static final double MITER_LIMIT = 10;
+    //Sides of parallelograms step in 32.32 fixed point
+    private static final double FIXED_ONE = 4294967296.0;
+    private static final long FIXED_HALF = 1L << 31;
+
+    private static final ThreadLocal<PixelCanvas> CANVAS = new ThreadLocal<>();
+
+    //Pixels of the frame being drawn, null once the canvas is disposed
+    private int[] pixels;
+    private int width;
+    private int height;
+    private int rgb = Color.WHITE.getRGB();
+    private int strokeWidth = 1;
+    private double[] polygonX = new double[0];
+    private double[] polygonY = new double[0];
+    private double[] reverseX = new double[0];
+    private double[] reverseY = new double[0];
+    private final double[] miterPoint = new double[2];
+    private int[] polylineX = new int[0];
+    private int[] polylineY = new int[0];
+    private int[] edgeX = new int[0];
+    private int[] edgeDirection = new int[0];
+    private int[] edgeLastY = new int[0];
+    private int[] edgeBumpX = new int[0];
+    private int[] edgeBumpError = new int[0];
+    private int[] edgeError = new int[0];
+    private long[] edgeOrder = new long[0];
+    private int[] activeEdges = new int[0];
+    private int[] activeX = new int[0];
+
+    public PixelCanvas(BufferedImage imgFrame) {
+        setFrame(imgFrame);
+    }
+
+    /**
+     * Canvas of the current thread drawing into the frame. A new canvas is returned while the one
+     * of the thread has not been disposed yet.
+     */
+    public static PixelCanvas forFrame(BufferedImage imgFrame) {
+        PixelCanvas canvas = CANVAS.get();
+        if (canvas == null) {
+            canvas = new PixelCanvas(imgFrame);
+            CANVAS.set(canvas);
+            return canvas;
+        }
+        if (canvas.pixels != null) {
+            return new PixelCanvas(imgFrame);
+        }
+        canvas.setFrame(imgFrame);
+        return canvas;
+    }
+
+    private void setFrame(BufferedImage imgFrame) {
+        if (imgFrame.getType() != BufferedImage.TYPE_INT_RGB) {
+            throw new IllegalArgumentException("Only TYPE_INT_RGB frames can be drawn by pixels");
+        }
+        this.pixels = ((DataBufferInt) imgFrame.getRaster().getDataBuffer()).getData();
+        this.width = imgFrame.getWidth();
+        this.height = imgFrame.getHeight();
+        this.rgb = Color.WHITE.getRGB();
+        this.strokeWidth = 1;
+    }
+
+    @Override
+    public void setColor(Color color) {
+        //Java2D stores opaque colors with the alpha bits set
+        this.rgb = color.getRGB();
+    }
+
+    @Override
+    public void setStrokeWidth(int width) {
+        this.strokeWidth = width;
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        int x0 = Math.max(x, 0);
+        int x1 = (int) Math.min((long) x + width, this.width);
+        int y0 = Math.max(y, 0);
+        int y1 = (int) Math.min((long) y + height, this.height);
+        if (x0 >= x1) {
+            return;
+        }
+        for (int row = y0; row < y1; row++) {
+            Arrays.fill(pixels, row * this.width + x0, row * this.width + x1, rgb);
+        }
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        if (strokeWidth <= 1) {
+            drawThinLine(x1, y1, x2, y2);
+        } else {
+            fillLine(x1, y1, x2, y2);
+        }
+    }
+
+    @Override
+    public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+        if (strokeWidth <= 1) {
+            for (int i = 1; i < nPoints; i++) {
+                drawThinLine(xPoints[i - 1], yPoints[i - 1], xPoints[i], yPoints[i]);
+            }
+            return;
+        }
+
+        //A single point has no segment to stroke
+        if (nPoints < 2) {
+            return;
+        }
+        ensurePolylineCapacity(nPoints);
+        System.arraycopy(xPoints, 0, polylineX, 0, nPoints);
+        System.arraycopy(yPoints, 0, polylineY, 0, nPoints);
+        fillStroke(nPoints);
+    }
+
+    @Override
+    public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        ensurePolygonCapacity(nPoints);
+        for (int i = 0; i < nPoints; i++) {
+            polygonX[i] = xPoints[i] + NORMALIZE_OFFSET;
+            polygonY[i] = yPoints[i] + NORMALIZE_OFFSET;
+        }
+        fillPolygon(nPoints, false);
+    }
+
+    @Override
+    public void dispose() {
+        //The frame is handed over to the encoder, only the scratch arrays stay with the thread
+        pixels = null;
+    }
+
+    /**
+     * Bresenham's line, ties on the minor axis step towards the end of the line as by Java2D.
+     */
+    private void drawThinLine(int x1, int y1, int x2, int y2) {
+        int dx = Math.abs(x2 - x1);
+        int dy = Math.abs(y2 - y1);
+        int stepX = x1 < x2 ? 1 : -1;
+        int stepY = y1 < y2 ? 1 : -1;
+        if (dx >= dy) {
+            //Error is the doubled distance of the minor coordinate from the line, scaled by dx
+            int error = -dx;
+            for (int x = x1, y = y1, i = 0; i <= dx; i++, x += stepX) {
+                setPixel(x, y);
+                error += 2 * dy;
+                if (error >= 0) {
+                    y += stepY;
+                    error -= 2 * dx;
+                }
+            }
+        } else {
+            int error = -dy;
+            for (int x = x1, y = y1, i = 0; i <= dy; i++, y += stepY) {
+                setPixel(x, y);
+                error += 2 * dx;
+                if (error >= 0) {
+                    x += stepX;
+                    error -= 2 * dy;
+                }
+            }
+        }
+    }
+
+    /**
+     * Thick line with square caps, drawn by Java2D as a parallelogram covering the line and its caps.
+     * A line of no length is a square heading right.
+     */
+    private void fillLine(int x1, int y1, int x2, int y2) {
+        double startX = x1 + NORMALIZE_OFFSET;
+        double startY = y1 + NORMALIZE_OFFSET;
+        double dx = (x2 + NORMALIZE_OFFSET) - startX;
+        double dy = (y2 + NORMALIZE_OFFSET) - startY;
+        double length = dx == 0 ? Math.abs(dy) : dy == 0 ? Math.abs(dx) : Math.sqrt(dx * dx + dy * dy);
+        double widthX = strokeWidth;
+        double widthY = 0;
+        if (length != 0) {
+            widthX = strokeWidth * dx / length;
+            widthY = strokeWidth * dy / length;
+        }
+        double x = startX + widthY / 2.0 - widthX / 2.0;
+        double y = startY - widthX / 2.0 - widthY / 2.0;
+        fillParallelogram(x, y, -widthY, widthX, dx + widthX, dy + widthY);
+    }
+
+    /**
+     * Fills the parallelogram at the point spanned by both vectors like the parallelogram loop of Java2D:
+     * rows between the rounded top and bottom, both sides stepping in 32.32 fixed point and bending
+     * at the row nearest to their corner.
+     */
+    private void fillParallelogram(double x0, double y0, double dx1, double dy1, double dx2, double dy2) {
+        if ((dx1 == 0 && dy1 == 0) || (dx2 == 0 && dy2 == 0)) {
+            return;
+        }
+        //Both vectors head down from the top corner, the first one along the left side
+        if (dy1 < 0) {
+            x0 += dx1;
+            y0 += dy1;
+            dx1 = -dx1;
+            dy1 = -dy1;
+        }
+        if (dy2 < 0) {
+            x0 += dx2;
+            y0 += dy2;
+            dx2 = -dx2;
+            dy2 = -dy2;
+        }
+        if (dx1 * dy2 > dx2 * dy1) {
+            double swap = dx1;
+            dx1 = dx2;
+            dx2 = swap;
+            swap = dy1;
+            dy1 = dy2;
+            dy2 = swap;
+        }
+
+        double minX = dx1 < 0 ? x0 + dx1 : x0;
+        double maxX = dx1 < 0 ? x0 : x0 + dx1;
+        if (dx2 < 0) {
+            minX += dx2;
+        } else {
+            maxX += dx2;
+        }
+        int left = Math.max((int) Math.floor(minX + 0.5), 0);
+        int right = Math.min((int) Math.floor(maxX + 0.5), width);
+        int firstRow = Math.max((int) Math.floor(y0 + 0.5), 0);
+        int endRow = Math.min((int) Math.floor(y0 + dy1 + dy2 + 0.5), height);
+        if (left >= right) {
+            return;
+        }
+
+        double leftSlope = dy1 == 0 ? 0 : dx1 / dy1;
+        double rightSlope = dy2 == 0 ? 0 : dx2 / dy2;
+        int leftCorner = (int) Math.floor(y0 + dy1 + 0.5);
+        int rightCorner = (int) Math.floor(y0 + dy2 + 0.5);
+        long leftX = 0;
+        long leftStep = 0;
+        long rightX = 0;
+        long rightStep = 0;
+        for (int row = firstRow; row < endRow; row++) {
+            //The left side continues along the second vector below its corner, the right side along the first
+            if (row == firstRow || row == leftCorner) {
+                if (row >= leftCorner) {
+                    leftX = edgeStart(row, x0 + dx1, y0 + dy1, rightSlope);
+                    leftStep = toFixed(rightSlope);
+                } else {
+                    leftX = edgeStart(row, x0, y0, leftSlope);
+                    leftStep = toFixed(leftSlope);
+                }
+            }
+            if (row == firstRow || row == rightCorner) {
+                if (row >= rightCorner) {
+                    rightX = edgeStart(row, x0 + dx2, y0 + dy2, leftSlope);
+                    rightStep = toFixed(leftSlope);
+                } else {
+                    rightX = edgeStart(row, x0, y0, rightSlope);
+                    rightStep = toFixed(rightSlope);
+                }
+            }
+            int x1 = Math.max((int) (leftX >> 32), left);
+            int x2 = Math.min((int) (rightX >> 32), right);
+            if (x1 < x2) {
+                Arrays.fill(pixels, row * width + x1, row * width + x2, rgb);
+            }
+            leftX += leftStep;
+            rightX += rightStep;
+        }
+    }
+
+    /**
+     * Fixed point position of the side in the row, rounded so that its whole part is the first pixel
+     * with the center right of the side.
+     */
+    private static long edgeStart(int row, double x, double y, double slope) {
+        return toFixed(x + slope * (row + 0.5 - y)) + FIXED_HALF - 1;
+    }
+
+    private static long toFixed(double value) {
+        return (long) (value * FIXED_ONE);
+    }
+
+    /**
+     * Fills the outline of the thick polyline in the polyline arrays, built point by point as by the stroker
+     * of Java2D: square caps at the ends, miter joins on the outer side of every turn, beveled when the miter
+     * is longer than 10 times half of the width, and the inner side pivoting through the point. Repeated
+     * points are segments of no length heading right. The outline may overlap itself, so it is filled with
+     * the non-zero rule.
+     */
+    private void fillStroke(int count) {
+        double halfWidth = strokeWidth / 2.0;
+        ensurePolygonCapacity(8 * count + 8);
+        //One side goes to the polygon arrays, the other to the reverse arrays, appended backwards at the end
+        int n = 0;
+        int reverseCount = 0;
+        double startX = polylineX[0] + NORMALIZE_OFFSET;
+        double startY = polylineY[0] + NORMALIZE_OFFSET;
+        double x0 = startX;
+        double y0 = startY;
+        double startOffsetX = 0;
+        double startOffsetY = 0;
+        double prevDx = 0;
+        double prevDy = 0;
+        double prevOffsetX = 0;
+        double prevOffsetY = 0;
+        for (int i = 1; i < count; i++) {
+            double x1 = polylineX[i] + NORMALIZE_OFFSET;
+            double y1 = polylineY[i] + NORMALIZE_OFFSET;
+            double dx = x1 - x0;
+            double dy = y1 - y0;
+            if (dx == 0 && dy == 0) {
+                dx = 1;
+            }
+            double length = Math.sqrt(dx * dx + dy * dy);
+            double offsetX = (dy * halfWidth) / length;
+            double offsetY = -(dx * halfWidth) / length;
+
+            if (i == 1) {
+                startOffsetX = offsetX;
+                startOffsetY = offsetY;
+            } else {
+                //Clockwise turns have the miter on the reverse side and the pivot on the other one
+                boolean clockwise = prevDx * dy <= prevDy * dx;
+                double side = clockwise ? -1 : 1;
+                boolean miter = false;
+                if (offsetX != prevOffsetX || offsetY != prevOffsetY) {
+                    computeMiter(x0 - prevDx + side * prevOffsetX, y0 - prevDy + side * prevOffsetY,
+                            x0 + side * prevOffsetX, y0 + side * prevOffsetY, dx + x0 + side * offsetX,
+                            dy + y0 + side * offsetY, x0 + side * offsetX, y0 + side * offsetY);
+                    //Parallel segments have no miter, its length is not a number or infinite
+                    double lengthSq = (miterPoint[0] - x0) * (miterPoint[0] - x0)
+                            + (miterPoint[1] - y0) * (miterPoint[1] - y0);
+                    miter = lengthSq < MITER_LIMIT * MITER_LIMIT * halfWidth * halfWidth;
+                }
+                if (clockwise) {
+                    if (miter) {
+                        reverseCount = addReversePoint(reverseCount, miterPoint[0], miterPoint[1]);
+                    }
+                    n = addPoint(n, x0, y0);
+                } else {
+                    if (miter) {
+                        n = addPoint(n, miterPoint[0], miterPoint[1]);
+                    }
+                    reverseCount = addReversePoint(reverseCount, x0, y0);
+                }
+            }
+            n = addPoint(n, x0 + offsetX, y0 + offsetY);
+            n = addPoint(n, x1 + offsetX, y1 + offsetY);
+            reverseCount = addReversePoint(reverseCount, x0 - offsetX, y0 - offsetY);
+            reverseCount = addReversePoint(reverseCount, x1 - offsetX, y1 - offsetY);
+
+            x0 = x1;
+            y0 = y1;
+            prevDx = dx;
+            prevDy = dy;
+            prevOffsetX = offsetX;
+            prevOffsetY = offsetY;
+        }
+
+        n = addPoint(n, x0 - prevOffsetY + prevOffsetX, y0 + prevOffsetX + prevOffsetY);
+        n = addPoint(n, x0 - prevOffsetY - prevOffsetX, y0 + prevOffsetX - prevOffsetY);
+        while (reverseCount > 0) {
+            reverseCount--;
+            n = addPoint(n, reverseX[reverseCount], reverseY[reverseCount]);
+        }
+        n = addPoint(n, startX + startOffsetY - startOffsetX, startY - startOffsetX - startOffsetY);
+        n = addPoint(n, startX + startOffsetY + startOffsetX, startY - startOffsetX + startOffsetY);
+        fillPolygon(n, true);
+    }
+
+    /**
+     * Intersection of the line through the first two points with the line through the last two points,
+     * stored to the miter point.
+     */
+    private void computeMiter(double x0, double y0, double x1, double y1, double x0p, double y0p, double x1p,
+                              double y1p) {
+        double x10 = x1 - x0;
+        double y10 = y1 - y0;
+        double x10p = x1p - x0p;
+        double y10p = y1p - y0p;
+        double t = (x10p * (y0 - y0p) - y10p * (x0 - x0p)) / (x10 * y10p - x10p * y10);
+        miterPoint[0] = x0 + t * x10;
+        miterPoint[1] = y0 + t * y10;
+    }
+
+    private int addPoint(int n, double x, double y) {
+        polygonX[n] = x;
+        polygonY[n] = y;
+        return n + 1;
+    }
+
+    private int addReversePoint(int n, double x, double y) {
+        reverseX[n] = x;
+        reverseY[n] = y;
+        return n + 1;
+    }
+
+    /**
+     * Fills the first nPoints of the polygon arrays with the non-zero or even-odd rule. Like the span iterator
+     * of Java2D, every edge starts at the first pixel center below its top in float precision and then steps
+     * from row to row in fixed point, so pixels with centers exactly on an edge are decided the same way.
+     */
+    private void fillPolygon(int nPoints, boolean nonZero) {
+        int edges = 0;
+        int firstRow = Integer.MAX_VALUE;
+        int endRow = Integer.MIN_VALUE;
+        for (int i = 0, j = nPoints - 1; i < nPoints; j = i++) {
+            float x0 = (float) polygonX[j];
+            float y0 = (float) polygonY[j];
+            float x1 = (float) polygonX[i];
+            float y1 = (float) polygonY[i];
+            int direction = 1;
+            if (y0 > y1) {
+                direction = -1;
+                float swap = x0;
+                x0 = x1;
+                x1 = swap;
+                swap = y0;
+                y0 = y1;
+                y1 = swap;
+            }
+            int startY = (int) Math.ceil(y0 - 0.5f);
+            int lastY = (int) Math.ceil(y1 - 0.5f);
+            if (startY >= lastY) {
+                continue;
+            }
+
+            float dx = x1 - x0;
+            float dy = y1 - y0;
+            float slope = dx / dy;
+            x0 += (startY + 0.5f - y0) * dx / dy;
+            int startX = (int) Math.ceil(x0 - 0.5f);
+            edgeX[edges] = startX;
+            edgeDirection[edges] = direction;
+            //First row in the high bits sorts the edges by it
+            edgeOrder[edges] = (long) startY << 32 | edges;
+            edgeLastY[edges] = lastY;
+            edgeBumpX[edges] = (int) Math.floor(slope);
+            edgeBumpError[edges] = (int) ((slope - Math.floor(slope)) * ERROR_STEP);
+            edgeError[edges] = (int) ((x0 - (startX - 0.5f)) * ERROR_STEP);
+            firstRow = Math.min(firstRow, startY);
+            endRow = Math.max(endRow, lastY);
+            edges++;
+        }
+
+        //Edges enter the active ones by their first row and leave them after their last row
+        Arrays.sort(edgeOrder, 0, edges);
+        int nextEdge = 0;
+        int activeCount = 0;
+
+        endRow = Math.min(endRow, height);
+        for (int row = firstRow; row < endRow; row++) {
+            int count = activeCount;
+            while (nextEdge < edges && edgeOrder[nextEdge] >> 32 == row) {
+                int e = (int) edgeOrder[nextEdge++];
+                activeEdges[count] = e;
+                activeX[count++] = edgeX[e];
+            }
+            activeCount = count;
+
+            //Edges stay sorted by x from row to row except where they cross, so insertion sorts them quickly
+            for (int a = 1; a < activeCount; a++) {
+                int e = activeEdges[a];
+                int x = activeX[a];
+                int k = a;
+                while (k > 0 && activeX[k - 1] > x) {
+                    activeEdges[k] = activeEdges[k - 1];
+                    activeX[k] = activeX[k - 1];
+                    k--;
+                }
+                activeEdges[k] = e;
+                activeX[k] = x;
+            }
+
+            if (row >= 0) {
+                int winding = 0;
+                for (int a = 0; a + 1 < activeCount; a++) {
+                    winding += nonZero ? edgeDirection[activeEdges[a]] : 1;
+                    if (nonZero ? winding == 0 : (winding & 1) == 0) {
+                        continue;
+                    }
+                    int x0 = Math.max(activeX[a], 0);
+                    int x1 = Math.min(activeX[a + 1], width);
+                    if (x0 < x1) {
+                        Arrays.fill(pixels, row * width + x0, row * width + x1, rgb);
+                    }
+                }
+            }
+
+            //Edges ending at this row leave, the others step to the next one
+            count = 0;
+            for (int a = 0; a < activeCount; a++) {
+                int e = activeEdges[a];
+                if (row + 1 >= edgeLastY[e]) {
+                    continue;
+                }
+                //The error overflowing into the sign bit moves the edge by one more pixel
+                int error = edgeError[e] + edgeBumpError[e];
+                int x = activeX[a] + edgeBumpX[e] - (error >> 31);
+                edgeError[e] = error & ERROR_STEP;
+                activeEdges[count] = e;
+                activeX[count++] = x;
+            }
+            activeCount = count;
+        }
+    }
+
+    private void setPixel(int x, int y) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            pixels[y * width + x] = rgb;
+        }
+    }
+
+    private void ensurePolylineCapacity(int nPoints) {
+        if (polylineX.length < nPoints) {
+            polylineX = new int[nPoints];
+            polylineY = new int[nPoints];
+        }
+    }
+
+    private void ensurePolygonCapacity(int nPoints) {
+        if (polygonX.length < nPoints) {
+            polygonX = new double[nPoints];
+            polygonY = new double[nPoints];
+            reverseX = new double[nPoints];
+            reverseY = new double[nPoints];
+            edgeX = new int[nPoints];
+            edgeDirection = new int[nPoints];
+            edgeLastY = new int[nPoints];
+            edgeBumpX = new int[nPoints];
+            edgeBumpError = new int[nPoints];
+            edgeError = new int[nPoints];
+            edgeOrder = new long[nPoints];
+            activeEdges = new int[nPoints];
+            activeX = new int[nPoints];
+        }
+    }
+}
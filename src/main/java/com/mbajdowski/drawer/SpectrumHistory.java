@@ -0,0 +1,35 @@
+package com.mbajdowski.drawer;
+
+/**
+ * History backed by an array of spectra, the first of which belongs to the given frame.
+ * The array is shared, not copied, and must not be modified while the history is used.
+ */
+public class SpectrumHistory implements ISpectrumHistory {
+
+    private final int[][] spectra;
+    private final int firstFrame;
+
+    public SpectrumHistory(int[][] spectra, int firstFrame) {
+        this.spectra = spectra;
+        this.firstFrame = firstFrame;
+    }
+
+    @Override
+    public int getFirstFrame() {
+        return firstFrame;
+    }
+
+    @Override
+    public int getEndFrame() {
+        return firstFrame + spectra.length;
+    }
+
+    @Override
+    public int[] get(int frame) {
+        if (frame < firstFrame || frame >= getEndFrame()) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " is not within the history from " + firstFrame
+                    + " to " + getEndFrame());
+        }
+        return spectra[frame - firstFrame];
+    }
+}
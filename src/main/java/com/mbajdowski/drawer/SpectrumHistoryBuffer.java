@@ -0,0 +1,31 @@
+package com.mbajdowski.drawer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps the spectra of the last frames of a stream. Every added spectrum is returned together with
+ * the preceding ones as a snapshot, which stays valid while later frames are added.
+ */
+public class SpectrumHistoryBuffer {
+
+    private final int historyLength;
+    private final Deque<int[]> spectra = new ArrayDeque<>();
+    private int endFrame = 0;
+
+    /**
+     * @param historyLength number of frames preceding the added one kept in its history
+     */
+    public SpectrumHistoryBuffer(int historyLength) {
+        this.historyLength = historyLength;
+    }
+
+    public ISpectrumHistory add(int[] spectrum) {
+        spectra.addLast(spectrum);
+        endFrame++;
+        if (spectra.size() > historyLength + 1) {
+            spectra.removeFirst();
+        }
+        return new SpectrumHistory(spectra.toArray(new int[0][]), endFrame - spectra.size());
+    }
+}
@@ -0,0 +1,11 @@
+package com.mbajdowski.fft;
+
+/**
+ * How spectra of consecutive frames are calculated.
+ */
+public enum AnalysisMode {
+    //Full real FFT of every window, buckets take the highest bin in their frequency range
+    FFT,
+    //Sliding DFT of a single bin per bucket, updated sample by sample
+    SLIDING_DFT
+}
@@ -0,0 +1,94 @@
+package com.mbajdowski.fft;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed twiddle factors and bit reversal permutation for an FFT of a given size.
+ * Plans are immutable, cached per size and can be shared between threads.
+ */
+public class FFTPlan {
+
+    private static final Map<Integer, FFTPlan> plans = new ConcurrentHashMap<>();
+
+    private final int n;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] swaps;
+
+    private FFTPlan(int n) {
+        if (Integer.highestOneBit(n) != n) {
+            throw new RuntimeException("n is not a power of 2");
+        }
+        this.n = n;
+
+        //Twiddle factors w^k = e^(-2*pi*i*k/n) for k < n/2, stage L uses every (n/L)-th one
+        this.cos = new double[n / 2];
+        this.sin = new double[n / 2];
+        for (int k = 0; k < n / 2; k++) {
+            double kth = -2 * k * Math.PI / n;
+            cos[k] = Math.cos(kth);
+            sin[k] = Math.sin(kth);
+        }
+
+        //Pairs of indexes which have to be swapped by the bit reversal permutation
+        int shift = 1 + Integer.numberOfLeadingZeros(n);
+        int noOfSwaps = 0;
+        int[] allSwaps = new int[n];
+        for (int k = 0; k < n; k++) {
+            int j = Integer.reverse(k) >>> shift;
+            if (j > k) {
+                allSwaps[noOfSwaps++] = k;
+                allSwaps[noOfSwaps++] = j;
+            }
+        }
+        this.swaps = Arrays.copyOf(allSwaps, noOfSwaps);
+    }
+
+    public static FFTPlan forSize(int n) {
+        return plans.computeIfAbsent(n, FFTPlan::new);
+    }
+
+    public int getSize() {
+        return n;
+    }
+
+    // compute the FFT of the complex sequence (re[], im[]) in-place
+    public void fft(double[] re, double[] im) {
+        if (re.length != n || im.length != n) {
+            throw new IllegalArgumentException("Arrays must have length equal to the plan size: " + n);
+        }
+
+        // bit reversal permutation
+        for (int s = 0; s < swaps.length; s += 2) {
+            int k = swaps[s];
+            int j = swaps[s + 1];
+            double temp = re[j];
+            re[j] = re[k];
+            re[k] = temp;
+            temp = im[j];
+            im[j] = im[k];
+            im[k] = temp;
+        }
+
+        // butterfly updates
+        for (int L = 2; L <= n; L = L+L) {
+            int half = L/2;
+            int stride = n/L;
+            for (int k = 0; k < half; k++) {
+                double wRe = cos[k * stride];
+                double wIm = sin[k * stride];
+                for (int j = k; j < n; j += L) {
+                    int p = j + half;
+                    double taoRe = wRe * re[p] - wIm * im[p];
+                    double taoIm = wRe * im[p] + wIm * re[p];
+                    re[p] = re[j] - taoRe;
+                    im[p] = im[j] - taoIm;
+                    re[j] += taoRe;
+                    im[j] += taoIm;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.mbajdowski.fft;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of bucketed spectra of consecutive animation frames. Spectra of several channels are
+ * concatenated, the spectrum of a frame holds getChannels() * getNoOfBuckets() values.
+ */
+public interface ISpectrumSource extends Closeable {
+
+    /**
+     * Number of frames, -1 when the source is unbounded.
+     */
+    int getFrameCount();
+
+    int getChannels();
+
+    int getNoOfBuckets();
+
+    /**
+     * Fills spectra[0 .. count) with newly allocated spectra of the next frames, returns the number of
+     * frames read which is less than count only at the end.
+     */
+    int read(int[][] spectra, int count) throws IOException, InterruptedException;
+}
@@ -58,4 +58,13 @@ public class InplaceFFT {
         return x;
     }
 
+    // compute the FFT of the complex sequence (re[], im[]) in-place, assuming its length is a power of 2
+    // works on primitive arrays with cached twiddle and bit reversal tables, see FFTPlan
+    public static void fft(double[] re, double[] im) {
+        if (im.length != re.length) {
+            throw new IllegalArgumentException("re and im must have the same length");
+        }
+        FFTPlan.forSize(re.length).fft(re, im);
+    }
+
 }
@@ -0,0 +1,83 @@
+package com.mbajdowski.fft;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FFT of a purely real sequence of length n. The input is packed into a complex sequence
+ * of length n/2 which is transformed with {@link FFTPlan} and then split using Hermitian
+ * symmetry, so only the n/2 non-redundant bins (0 .. n/2-1) are computed and returned.
+ * Instances are immutable, cached per size and can be shared between threads.
+ */
+public class RealFFT {
+
+    private static final Map<Integer, RealFFT> transforms = new ConcurrentHashMap<>();
+
+    private final int n;
+    private final FFTPlan halfPlan;
+    private final double[] cos;
+    private final double[] sin;
+
+    private RealFFT(int n) {
+        if (n < 2 || Integer.highestOneBit(n) != n) {
+            throw new RuntimeException("n is not a power of 2 greater than 1");
+        }
+        this.n = n;
+        this.halfPlan = FFTPlan.forSize(n / 2);
+
+        //Twiddle factors w^k = e^(-2*pi*i*k/n) used by the split step
+        this.cos = new double[n / 4 + 1];
+        this.sin = new double[n / 4 + 1];
+        for (int k = 0; k < cos.length; k++) {
+            double kth = -2 * k * Math.PI / n;
+            cos[k] = Math.cos(kth);
+            sin[k] = Math.sin(kth);
+        }
+    }
+
+    public static RealFFT forSize(int n) {
+        return transforms.computeIfAbsent(n, RealFFT::new);
+    }
+
+    public int getSize() {
+        return n;
+    }
+
+    // compute bins 0 .. n/2-1 of the FFT of the real sequence x[] into (re[], im[])
+    public void fft(double[] x, double[] re, double[] im) {
+        int m = n / 2;
+        if (x.length != n || re.length != m || im.length != m) {
+            throw new IllegalArgumentException("Input must have length " + n + " and output arrays length " + m);
+        }
+
+        //Even samples as real part, odd samples as imaginary part
+        for (int k = 0; k < m; k++) {
+            re[k] = x[2 * k];
+            im[k] = x[2 * k + 1];
+        }
+        halfPlan.fft(re, im);
+
+        //Split: X[k] = E[k] + w^k * O[k], where E and O are transforms of even and odd samples
+        double zeroRe = re[0];
+        double zeroIm = im[0];
+        re[0] = zeroRe + zeroIm;
+        im[0] = 0;
+        for (int k = 1; k <= m / 2; k++) {
+            int j = m - k;
+            double evenRe = (re[k] + re[j]) / 2;
+            double evenIm = (im[k] - im[j]) / 2;
+            double oddRe = (im[k] + im[j]) / 2;
+            double oddIm = (re[j] - re[k]) / 2;
+            double wRe = cos[k];
+            double wIm = sin[k];
+            double taoRe = wRe * oddRe - wIm * oddIm;
+            double taoIm = wRe * oddIm + wIm * oddRe;
+
+            re[k] = evenRe + taoRe;
+            im[k] = evenIm + taoIm;
+            //w^(m-k) = -conj(w^k) and E[m-k], O[m-k] are conjugates of E[k], O[k]
+            re[j] = evenRe - taoRe;
+            im[j] = taoIm - evenIm;
+        }
+    }
+}
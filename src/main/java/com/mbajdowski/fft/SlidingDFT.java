@@ -0,0 +1,70 @@
+package com.mbajdowski.fft;
+
+/**
+ * Sliding DFT tracking selected bins of the DFT over the last n samples. Every new sample updates
+ * each tracked bin in constant time, so advancing a frame by hop samples costs O(bins * hop)
+ * instead of a full transform. The last n samples are kept in a ring buffer reused for the whole stream.
+ * Instances keep state between calls and must not be shared between threads.
+ */
+public class SlidingDFT {
+
+    private final int n;
+    private final double[] cos;
+    private final double[] sin;
+    private final double[] re;
+    private final double[] im;
+    private final double[] history;
+    private int position;
+
+    public SlidingDFT(int n, int[] bins) {
+        if (n < 2) {
+            throw new IllegalArgumentException("Window needs to have at least 2 samples");
+        }
+        this.n = n;
+        this.cos = new double[bins.length];
+        this.sin = new double[bins.length];
+        this.re = new double[bins.length];
+        this.im = new double[bins.length];
+        this.history = new double[n];
+
+        //Rotation e^(2*pi*i*k/n) moving each bin by one sample
+        for (int b = 0; b < bins.length; b++) {
+            if (bins[b] < 0 || bins[b] >= n) {
+                throw new IllegalArgumentException("Bin " + bins[b] + " is outside of the window of " + n + " samples");
+            }
+            double kth = 2 * bins[b] * Math.PI / n;
+            cos[b] = Math.cos(kth);
+            sin[b] = Math.sin(kth);
+        }
+    }
+
+    public int getSize() {
+        return n;
+    }
+
+    // S_k(t) = e^(2*pi*i*k/n) * (S_k(t-1) + x(t) - x(t-n))
+    public void update(double[] samples, int offset, int length) {
+        for (int s = offset; s < offset + length; s++) {
+            double delta = samples[s] - history[position];
+            history[position] = samples[s];
+            position = position + 1 == n ? 0 : position + 1;
+
+            for (int b = 0; b < re.length; b++) {
+                double r = re[b] + delta;
+                double i = im[b];
+                re[b] = r * cos[b] - i * sin[b];
+                im[b] = r * sin[b] + i * cos[b];
+            }
+        }
+    }
+
+    public void getMagnitudes(int[] result) {
+        getMagnitudes(result, 0);
+    }
+
+    public void getMagnitudes(int[] result, int offset) {
+        for (int b = 0; b < re.length; b++) {
+            result[offset + b] = (int) Math.sqrt(re[b] * re[b] + im[b] * im[b]);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.mbajdowski.fft;
+
+import com.mbajdowski.metrics.Metrics;
+import com.mbajdowski.metrics.Stage;
+import com.mbajdowski.sound.ChannelMode;
+import com.mbajdowski.sound.IAudioSource;
+import com.mbajdowski.utils.BucketMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.mbajdowski.utils.MathHelper.findNearestPowerOfTwo;
+
+/**
+ * Calculates spectra of an audio source frame by frame. Consecutive frames are samplesPerHop apart and
+ * analyse windows of samplesPerFrame samples, windows longer than the hop overlap. Audio is streamed,
+ * only the samples of the requested frames and the lookahead of overlapping windows are buffered.
+ * All channels selected by the {@link ChannelMode} are decoded in a single pass and their spectra are
+ * concatenated. Frames of one read are split between threads of the executor in {@link AnalysisMode#FFT} mode.
+ * Sources with an unknown number of samples, like live audio, are analysed until their end.
+ */
+public class SpectrumAnalyser implements ISpectrumSource {
+
+    private final IAudioSource audioSource;
+    private final ChannelMode channelMode;
+    private final int channels;
+    private final int[] freqBuckets;
+    private final int samplesPerHop;
+    private final int samplesPerFrame;
+    private final int frameCount;
+    private final int lookahead;
+    private final BucketMap bucketMap;
+    private final SlidingDFT[] slidingDFTs;
+    private final ExecutorService executor;
+    private final int threads;
+    private Metrics metrics = Metrics.DISABLED;
+
+    //Analysed signal of every channel and, when channels are mixed, samples of the source channels
+    private double[][] data;
+    private double[][] sourceData;
+    private int bufferedSamples = 0;
+    private int slidingPosition = 0;
+    private int framesRead = 0;
+    private long samplesRead = 0;
+
+    /**
+     * @param windowSize number of samples analysed per frame, 0 picks the largest power of two not above the hop
+     * @param executor   executor sharing the work between threads, null analyses on the calling thread
+     */
+    public SpectrumAnalyser(IAudioSource audioSource, int fps, int[] freqBuckets, int windowSize,
+                            AnalysisMode analysisMode, ChannelMode channelMode, ExecutorService executor, int threads) {
+        this.audioSource = audioSource;
+        this.channelMode = channelMode;
+        this.channels = channelMode.getAnalysedChannels(audioSource.getChannels());
+        this.freqBuckets = freqBuckets;
+        this.executor = executor;
+        this.threads = threads;
+
+        float sampleRate = audioSource.getSampleRate();
+        this.samplesPerHop = (int) sampleRate / fps;
+        this.samplesPerFrame = windowSize > 0 ? windowSize : findNearestPowerOfTwo(samplesPerHop);
+        if (analysisMode == AnalysisMode.FFT && Integer.bitCount(samplesPerFrame) != 1) {
+            throw new IllegalArgumentException("FFT window size needs to be a power of 2");
+        }
+        long sampleCount = audioSource.getSampleCount();
+        this.frameCount = sampleCount < 0 ? -1 : (int) Math.ceil(sampleCount / (double) samplesPerHop);
+
+        //Windows longer than the hop reach into the next read, that lookahead is carried over
+        this.lookahead = Math.max(samplesPerFrame - samplesPerHop, 0);
+        //Static gain is skipped, so bins 1 .. samplesPerFrame/2-1 are mapped
+        this.bucketMap = new BucketMap(freqBuckets, samplesPerFrame / 2 - 1, sampleRate);
+        this.slidingDFTs = analysisMode == AnalysisMode.SLIDING_DFT ? new SlidingDFT[channels] : null;
+        for (int c = 0; slidingDFTs != null && c < channels; c++) {
+            slidingDFTs[c] = new SlidingDFT(samplesPerFrame, findBucketBins(freqBuckets, samplesPerFrame, sampleRate));
+        }
+
+        this.data = new double[channels][0];
+        boolean mixed = channelMode == ChannelMode.MIX || channelMode == ChannelMode.MID_SIDE;
+        this.sourceData = mixed ? new double[audioSource.getChannels()][0] : null;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public int getNoOfBuckets() {
+        return freqBuckets.length;
+    }
+
+    /**
+     * Records decoding, FFT and bucketing stages of the analysis.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public int getSamplesPerFrame() {
+        return samplesPerFrame;
+    }
+
+    @Override
+    public int read(int[][] spectra, int count) throws IOException, InterruptedException {
+        int noOfFrames = frameCount < 0 ? count : Math.min(count, frameCount - framesRead);
+        int batchSamples = noOfFrames * samplesPerHop;
+        ensureCapacity(batchSamples + lookahead);
+
+        //Read audio, pad with zeros past the end of the data
+        long start = metrics.start();
+        int newSamples = readAudio(bufferedSamples, batchSamples + lookahead - bufferedSamples);
+        int readSamples = bufferedSamples + newSamples;
+        metrics.stop(Stage.DECODE, start);
+        samplesRead += newSamples;
+        if (frameCount < 0 && readSamples < batchSamples + lookahead) {
+            //End of an unbounded source, the last frames start before it
+            int framesInSource = (int) Math.ceil(samplesRead / (double) samplesPerHop);
+            noOfFrames = Math.max(Math.min(noOfFrames, framesInSource - framesRead), 0);
+            batchSamples = noOfFrames * samplesPerHop;
+        }
+        for (double[] channelData : data) {
+            Arrays.fill(channelData, readSamples, channelData.length, 0);
+        }
+
+        if (slidingDFTs == null) {
+            calculateSpectra(noOfFrames, spectra);
+        } else {
+            calculateSlidingSpectra(noOfFrames, spectra);
+        }
+        for (double[] channelData : data) {
+            System.arraycopy(channelData, batchSamples, channelData, 0, lookahead);
+        }
+        bufferedSamples = lookahead;
+        framesRead += noOfFrames;
+        return noOfFrames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        audioSource.close();
+    }
+
+    private void ensureCapacity(int samples) {
+        if (data[0].length >= samples) {
+            return;
+        }
+        for (int c = 0; c < data.length; c++) {
+            data[c] = Arrays.copyOf(data[c], samples);
+        }
+        for (int c = 0; sourceData != null && c < sourceData.length; c++) {
+            sourceData[c] = new double[samples];
+        }
+    }
+
+    private int readAudio(int offset, int length) throws IOException {
+        switch (channelMode) {
+            case FIRST:
+                return audioSource.read(0, data[0], offset, length);
+            case ALL:
+                return audioSource.read(data, offset, length);
+            default:
+                int count = audioSource.read(sourceData, offset, length);
+                mixChannels(offset, offset + count);
+                return count;
+        }
+    }
+
+    private void mixChannels(int from, int to) {
+        if (channelMode == ChannelMode.MID_SIDE) {
+            double[] left = sourceData[0];
+            double[] right = sourceData[1];
+            for (int i = from; i < to; i++) {
+                data[0][i] = (left[i] + right[i]) / 2;
+                data[1][i] = (left[i] - right[i]) / 2;
+            }
+            return;
+        }
+
+        double[] mix = data[0];
+        System.arraycopy(sourceData[0], from, mix, from, to - from);
+        for (int c = 1; c < sourceData.length; c++) {
+            double[] channelData = sourceData[c];
+            for (int i = from; i < to; i++) {
+                mix[i] += channelData[i];
+            }
+        }
+        for (int i = from; i < to; i++) {
+            mix[i] /= sourceData.length;
+        }
+    }
+
+    private void calculateSpectra(int noOfFrames, int[][] result) throws InterruptedException {
+        if (executor == null) {
+            calculateSpectra(0, noOfFrames, result);
+            return;
+        }
+
+        //Frames are independent, so split them into chunks computed concurrently
+        int chunkSize = Math.max(1, (int) Math.ceil(noOfFrames / (double) threads));
+        List<Future<?>> futures = new ArrayList<>();
+        for (int chunkStart = 0; chunkStart < noOfFrames; chunkStart += chunkSize) {
+            int fromFrame = chunkStart;
+            int toFrame = Math.min(chunkStart + chunkSize, noOfFrames);
+            futures.add(executor.submit(() -> calculateSpectra(fromFrame, toFrame, result)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            //Calculation throws no checked exceptions
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private void calculateSpectra(int fromFrame, int toFrame, int[][] result) {
+        RealFFT realFFT = RealFFT.forSize(samplesPerFrame);
+        double[] samples = new double[samplesPerFrame];
+        double[] re = new double[samplesPerFrame / 2];
+        double[] im = new double[samplesPerFrame / 2];
+        for (int i = fromFrame; i < toFrame; i++) {
+            result[i] = new int[channels * freqBuckets.length];
+            for (int c = 0; c < channels; c++) {
+                System.arraycopy(data[c], i * samplesPerHop, samples, 0, samplesPerFrame);
+                //Real FFT returns only half of the results (Niquist limit)
+                long start = metrics.start();
+                realFFT.fft(samples, re, im);
+                metrics.stop(Stage.FFT, start);
+
+                //Remove first frequency (static gain) - start from 1
+                start = metrics.start();
+                bucketMap.map(re, im, 1, result[i], c * freqBuckets.length);
+                metrics.stop(Stage.BUCKETING, start);
+            }
+        }
+    }
+
+    /**
+     * Feeds the sliding DFT up to the end of every frame window and keeps the position in the next
+     * read it has been fed to. Samples between short windows are fed too, the DFT needs all of them.
+     */
+    private void calculateSlidingSpectra(int noOfFrames, int[][] result) {
+        for (int i = 0; i < noOfFrames; i++) {
+            int windowEnd = i * samplesPerHop + samplesPerFrame;
+            result[i] = new int[channels * freqBuckets.length];
+            for (int c = 0; c < channels; c++) {
+                //Magnitudes are computed per bucket bin, so bucketing is part of the sliding DFT
+                long start = metrics.start();
+                slidingDFTs[c].update(data[c], slidingPosition, windowEnd - slidingPosition);
+                slidingDFTs[c].getMagnitudes(result[i], c * freqBuckets.length);
+                metrics.stop(Stage.FFT, start);
+            }
+            slidingPosition = windowEnd;
+        }
+
+        int batchSamples = noOfFrames * samplesPerHop;
+        if (slidingPosition < batchSamples) {
+            for (int c = 0; c < channels; c++) {
+                slidingDFTs[c].update(data[c], slidingPosition, batchSamples - slidingPosition);
+            }
+            slidingPosition = batchSamples;
+        }
+        slidingPosition -= batchSamples;
+    }
+
+    //DFT bin nearest to the frequency of every bucket, skipping static gain
+    static int[] findBucketBins(int[] freqBuckets, int samplesPerFrame, float sampleRate) {
+        int[] bins = new int[freqBuckets.length];
+        for (int j = 0; j < freqBuckets.length; j++) {
+            int bin = Math.round(freqBuckets[j] * samplesPerFrame / sampleRate);
+            bins[j] = Math.max(1, Math.min(bin, samplesPerFrame / 2 - 1));
+        }
+        return bins;
+    }
+}
@@ -0,0 +1,239 @@
+package com.mbajdowski.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per stage timings of the animation generation. A stage is measured on one thread with
+ * {@code long start = metrics.start(); ... metrics.stop(Stage.FFT, start);}, stages must not be nested.
+ * {@link #DISABLED} returns right away, so the calls stay on hot paths. Enabled metrics keep a histogram
+ * of durations with power of two buckets, count bytes allocated by the measuring thread when the JVM
+ * supports it and can be registered in JMX. Instances are thread safe.
+ */
+public class Metrics implements MetricsMXBean {
+
+    public static final Metrics DISABLED = new Metrics(false);
+
+    private static final Logger log = Logger.getLogger(Metrics.class.getName());
+    private static final com.sun.management.ThreadMXBean threadBean = allocationBean();
+    private static final int HISTOGRAM_BUCKETS = 64;
+
+    private final boolean enabled;
+    private final StageStats[] stages = new StageStats[Stage.values().length];
+    private final ThreadLocal<long[]> allocatedAtStart = ThreadLocal.withInitial(() -> new long[1]);
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos = 0;
+    private ObjectName objectName;
+
+    public Metrics() {
+        this(true);
+    }
+
+    private Metrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new StageStats();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long start() {
+        if (!enabled) {
+            return 0;
+        }
+        if (threadBean != null) {
+            allocatedAtStart.get()[0] = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return System.nanoTime();
+    }
+
+    public void stop(Stage stage, long start) {
+        if (!enabled) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threadBean != null
+                ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedAtStart.get()[0]
+                : 0;
+        stages[stage.ordinal()].record(nanos, allocated);
+    }
+
+    /**
+     * Stops the clock of frames per second.
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getCount(Stage stage) {
+        return stages[stage.ordinal()].count.sum();
+    }
+
+    /**
+     * Upper bound of the duration of the given fraction of measurements, exact to a power of two.
+     */
+    public long getPercentileNanos(Stage stage, double fraction) {
+        return stages[stage.ordinal()].percentile(fraction);
+    }
+
+    @Override
+    public long getFrames() {
+        return getCount(Stage.ENCODING);
+    }
+
+    @Override
+    public double getElapsedSeconds() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1e9;
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? getFrames() / seconds : 0;
+    }
+
+    @Override
+    public Map<String, Long> getStageCounts() {
+        return stageMap(stats -> stats.count.sum());
+    }
+
+    @Override
+    public Map<String, Long> getStageTotalNanos() {
+        return stageMap(stats -> stats.totalNanos.sum());
+    }
+
+    @Override
+    public Map<String, Long> getStageAllocatedBytes() {
+        return stageMap(stats -> stats.allocatedBytes.sum());
+    }
+
+    @Override
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append(String.format(Locale.ROOT, "  \"elapsedSeconds\": %.3f,%n", getElapsedSeconds()));
+        sb.append(String.format(Locale.ROOT, "  \"frames\": %d,%n", getFrames()));
+        sb.append(String.format(Locale.ROOT, "  \"framesPerSecond\": %.2f,%n", getFramesPerSecond()));
+        sb.append(String.format(Locale.ROOT, "  \"allocationCounted\": %b,%n", threadBean != null));
+        sb.append("  \"stages\": {");
+        for (Stage stage : Stage.values()) {
+            StageStats stats = stages[stage.ordinal()];
+            long count = stats.count.sum();
+            sb.append(stage.ordinal() == 0 ? "\n" : ",\n");
+            sb.append(String.format(Locale.ROOT, "    \"%s\": {\"count\": %d, \"totalNanos\": %d, \"meanNanos\": %d, "
+                            + "\"maxNanos\": %d, \"p50Nanos\": %d, \"p90Nanos\": %d, \"p99Nanos\": %d, "
+                            + "\"allocatedBytes\": %d, \"histogramNanos\": {",
+                    stage.name(), count, stats.totalNanos.sum(), count > 0 ? stats.totalNanos.sum() / count : 0,
+                    stats.maxNanos.get(), stats.percentile(0.5), stats.percentile(0.9), stats.percentile(0.99),
+                    stats.allocatedBytes.sum()));
+            String separator = "";
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                long bucketCount = stats.histogram.get(i);
+                if (bucketCount > 0) {
+                    sb.append(separator).append('"').append(upperBound(i)).append("\": ").append(bucketCount);
+                    separator = ", ";
+                }
+            }
+            sb.append("}}");
+        }
+        sb.append("\n  }\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server, failures are only logged.
+     */
+    public void register(String name) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ObjectName candidate = new ObjectName("com.mbajdowski:type=Metrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, candidate);
+            objectName = candidate;
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Metrics not registered in JMX: " + e.getMessage());
+        }
+    }
+
+    public void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Metrics not unregistered from JMX: " + e.getMessage());
+        }
+        objectName = null;
+    }
+
+    private Map<String, Long> stageMap(ToLongFunction<StageStats> value) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            result.put(stage.name(), value.applyAsLong(stages[stage.ordinal()]));
+        }
+        return result;
+    }
+
+    //Bucket i holds durations below 2^i nanoseconds
+    private static long upperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+            if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationBean;
+            }
+        }
+        return null;
+    }
+
+    private static class StageStats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+        void record(long nanos, long allocated) {
+            count.increment();
+            totalNanos.add(nanos);
+            allocatedBytes.add(allocated);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            histogram.incrementAndGet(Math.min(HISTOGRAM_BUCKETS - Long.numberOfLeadingZeros(nanos), HISTOGRAM_BUCKETS - 1));
+        }
+
+        long percentile(double fraction) {
+            long total = count.sum();
+            long seen = 0;
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                seen += histogram.get(i);
+                if (seen > 0 && seen >= fraction * total) {
+                    return upperBound(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.mbajdowski.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics}, stage maps are keyed by {@link Stage} names.
+ */
+public interface MetricsMXBean {
+
+    long getFrames();
+
+    double getFramesPerSecond();
+
+    double getElapsedSeconds();
+
+    Map<String, Long> getStageCounts();
+
+    Map<String, Long> getStageTotalNanos();
+
+    Map<String, Long> getStageAllocatedBytes();
+
+    String toJson();
+}
@@ -0,0 +1,19 @@
+package com.mbajdowski.metrics;
+
+/**
+ * Measured stages of the animation generation.
+ */
+public enum Stage {
+    //Reading and decoding audio samples, including channel mixing
+    DECODE,
+    //FFT or sliding DFT of one channel of a frame
+    FFT,
+    //Mapping FFT bins onto frequency buckets
+    BUCKETING,
+    //Updating the extrema window of a frame
+    EXTREMA,
+    //Drawing a frame image
+    DRAWING,
+    //Colour conversion and H.264 encoding of a frame
+    ENCODING
+}
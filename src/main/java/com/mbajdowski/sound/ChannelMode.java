@@ -0,0 +1,29 @@
+package com.mbajdowski.sound;
+
+/**
+ * Which signals of a multi-channel source are analysed.
+ */
+public enum ChannelMode {
+    //First channel only
+    FIRST,
+    //Average of all channels
+    MIX,
+    //Every channel separately
+    ALL,
+    //Mid (L+R)/2 and side (L-R)/2 of the first two channels
+    MID_SIDE;
+
+    public int getAnalysedChannels(int sourceChannels) {
+        switch (this) {
+            case ALL:
+                return sourceChannels;
+            case MID_SIDE:
+                if (sourceChannels < 2) {
+                    throw new IllegalArgumentException("Mid/side analysis needs at least 2 channels");
+                }
+                return 2;
+            default:
+                return 1;
+        }
+    }
+}
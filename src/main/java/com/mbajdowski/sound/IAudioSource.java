@@ -0,0 +1,41 @@
+package com.mbajdowski.sound;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Source of audio samples read sequentially frame by frame. Every read consumes whole frames, so reading
+ * one channel skips the same samples of the other channels. Samples are scaled to the 16-bit range.
+ */
+public interface IAudioSource extends Closeable {
+
+    float getSampleRate();
+
+    int getChannels();
+
+    long getSampleCount();
+
+    /**
+     * Reads the channel from the next length frames, returns the number of samples read which is less than
+     * length only at the end of the data.
+     */
+    int read(int channelIndex, double[] samples, int offset, int length) throws IOException;
+
+    /**
+     * Reads the next samples of the first samples.length channels in a single pass over the interleaved
+     * data, samples[c] receives channel c. Returns the number of samples read per channel.
+     */
+    int read(double[][] samples, int offset, int length) throws IOException;
+
+    /**
+     * Opens WAV files with memory mapped {@link WavFileReader}, other formats with {@link MusicFileManager}.
+     */
+    static IAudioSource open(File file) throws IOException, UnsupportedAudioFileException {
+        if (WavFileReader.isWavFile(file)) {
+            return new WavFileReader(file);
+        }
+        return new MusicFileManager(file);
+    }
+}
@@ -4,42 +4,129 @@ import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
 
-public class MusicFileManager {
+public class MusicFileManager implements IAudioSource {
+
+    private static final int FRAMES_PER_READ = 4096;
 
     private AudioInputStream ais;
+    private SampleDecoder decoder;
+    private byte[] readBuffer;
 
     public MusicFileManager(File file) throws IOException, UnsupportedAudioFileException {
-        ais = AudioSystem.getAudioInputStream(file);
+        this(AudioSystem.getAudioInputStream(file));
+    }
+
+    /**
+     * Reads PCM from the stream, which may be endless like a TargetDataLine, stdin or a named pipe.
+     * Reads block until all requested samples arrive or the stream ends.
+     */
+    public MusicFileManager(AudioInputStream ais) throws IOException, UnsupportedAudioFileException {
+        this.ais = ais;
+        try {
+            decoder = new SampleDecoder(ais.getFormat());
+        } catch (IllegalArgumentException e) {
+            ais.close();
+            throw new UnsupportedAudioFileException(e.getMessage());
+        }
     }
 
     public AudioFormat getFormat(){
         return ais.getFormat();
     }
 
-    public byte[] getChannelData(int channelIndex) throws IOException {
-        int noOfChannels = ais.getFormat().getChannels();
-        if(channelIndex>noOfChannels-1){
-            throw new IllegalArgumentException("Channel index to out of band. Available channels: "+ noOfChannels);
+    @Override
+    public float getSampleRate() {
+        return ais.getFormat().getSampleRate();
+    }
+
+    @Override
+    public int getChannels() {
+        return ais.getFormat().getChannels();
+    }
+
+    /**
+     * Number of samples per channel, -1 ({@link AudioSystem#NOT_SPECIFIED}) for endless streams.
+     */
+    @Override
+    public long getSampleCount() {
+        return ais.getFrameLength();
+    }
+
+    @Override
+    public int read(int channelIndex, double[] samples, int offset, int length) throws IOException {
+        checkChannelIndex(channelIndex);
+
+        int readFrames = readFrames(length);
+        decoder.decode(readBuffer, 0, readFrames, channelIndex, samples, offset);
+
+        return readFrames;
+    }
+
+    @Override
+    public int read(double[][] samples, int offset, int length) throws IOException {
+        checkChannelIndex(samples.length - 1);
+
+        int readFrames = readFrames(length);
+        for (int channelIndex = 0; channelIndex < samples.length; channelIndex++) {
+            decoder.decode(readBuffer, 0, readFrames, channelIndex, samples[channelIndex], offset);
         }
 
-        byte[] data = new byte[ais.available()];
-        ais.read(data);
+        return readFrames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ais.close();
+    }
 
-        //Remove first empty byte
-        data = Arrays.copyOfRange(data, 1, data.length);
+    public byte[] getChannelData(int channelIndex) throws IOException {
+        checkChannelIndex(channelIndex);
 
-        //Read only one channel
-        byte[] result = new byte[data.length / noOfChannels];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = data[i * noOfChannels + channelIndex];
+        //Read only one channel, whole samples of every frame
+        int frameSize = decoder.getFrameSize();
+        int sampleSize = ais.getFormat().getSampleSizeInBits() / 8;
+        byte[] frames = new byte[FRAMES_PER_READ * frameSize];
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        int readFrames;
+        while ((readFrames = readFrames(frames, FRAMES_PER_READ)) > 0) {
+            for (int i = 0; i < readFrames; i++) {
+                result.write(frames, i * frameSize + channelIndex * sampleSize, sampleSize);
+            }
         }
 
-        return result;
+        return result.toByteArray();
+    }
+
+    private int readFrames(int noOfFrames) throws IOException {
+        int frameSize = decoder.getFrameSize();
+        if (readBuffer == null || readBuffer.length < noOfFrames * frameSize) {
+            readBuffer = new byte[noOfFrames * frameSize];
+        }
+        return readFrames(readBuffer, noOfFrames);
     }
 
+    private int readFrames(byte[] buffer, int noOfFrames) throws IOException {
+        int frameSize = decoder.getFrameSize();
+        int length = noOfFrames * frameSize;
+        int readBytes = 0;
+        while (readBytes < length) {
+            int count = ais.read(buffer, readBytes, length - readBytes);
+            if (count < 0) {
+                break;
+            }
+            readBytes += count;
+        }
+        return readBytes / frameSize;
+    }
 
+    private void checkChannelIndex(int channelIndex) {
+        int noOfChannels = ais.getFormat().getChannels();
+        if(channelIndex>noOfChannels-1){
+            throw new IllegalArgumentException("Channel index to out of band. Available channels: "+ noOfChannels);
+        }
+    }
 }
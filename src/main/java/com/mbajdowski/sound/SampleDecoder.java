@@ -0,0 +1,128 @@
+package com.mbajdowski.sound;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes interleaved PCM frames described by an {@link AudioFormat} into samples of one channel.
+ * Supports 8, 16, 24 and 32-bit signed or unsigned integers and 32 or 64-bit floats in both byte orders.
+ * Every format is scaled to the 16-bit range. There is one plain loop per sample size with the byte order
+ * and signedness resolved up front, so the JIT can compile them without branches per sample.
+ */
+public class SampleDecoder {
+
+    private static final double FLOAT_SCALE = 32768.0;
+
+    private final boolean isFloat;
+    private final int bytesPerSample;
+    private final int frameSize;
+    private final boolean bigEndian;
+    private final int signFlip;
+    private final double integerScale;
+
+    public SampleDecoder(AudioFormat format) {
+        AudioFormat.Encoding encoding = format.getEncoding();
+        int bits = format.getSampleSizeInBits();
+        this.isFloat = AudioFormat.Encoding.PCM_FLOAT.equals(encoding);
+        boolean unsigned = AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding);
+        if (!isFloat && !unsigned && !AudioFormat.Encoding.PCM_SIGNED.equals(encoding)) {
+            throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        }
+        if (isFloat ? bits != 32 && bits != 64 : bits != 8 && bits != 16 && bits != 24 && bits != 32) {
+            throw new IllegalArgumentException("Unsupported sample size: " + bits + " bits");
+        }
+
+        this.bytesPerSample = bits / 8;
+        this.frameSize = format.getFrameSize() > 0 ? format.getFrameSize() : bytesPerSample * format.getChannels();
+        //8-bit samples have no byte order
+        this.bigEndian = format.isBigEndian() && bytesPerSample > 1;
+        this.signFlip = unsigned ? 1 << (bits - 1) : 0;
+        this.integerScale = Math.pow(2, 16 - bits);
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * Decodes the given number of frames of one channel starting at the offset (in bytes) of interleaved data.
+     */
+    public void decode(byte[] data, int offset, int frames, int channelIndex, double[] result, int resultOffset) {
+        int p = offset + channelIndex * bytesPerSample;
+        int last = bytesPerSample - 1;
+        if (isFloat) {
+            decodeFloat(data, p, frames, result, resultOffset);
+            return;
+        }
+
+        switch (bytesPerSample) {
+            case 1:
+                for (int i = 0; i < frames; i++, p += frameSize) {
+                    result[resultOffset + i] = (byte) (data[p] ^ signFlip) * 256.0;
+                }
+                break;
+            case 2: {
+                int hi = bigEndian ? 0 : last;
+                int lo = last - hi;
+                for (int i = 0; i < frames; i++, p += frameSize) {
+                    int raw = (data[p + hi] & 255) << 8 | (data[p + lo] & 255);
+                    result[resultOffset + i] = (short) (raw ^ signFlip);
+                }
+                break;
+            }
+            case 3: {
+                int b2 = bigEndian ? 0 : last;
+                int b0 = last - b2;
+                for (int i = 0; i < frames; i++, p += frameSize) {
+                    int raw = (data[p + b2] & 255) << 16 | (data[p + 1] & 255) << 8 | (data[p + b0] & 255);
+                    result[resultOffset + i] = (((raw ^ signFlip) << 8) >> 8) / 256.0;
+                }
+                break;
+            }
+            default: {
+                int b3 = bigEndian ? 0 : last;
+                int b2 = bigEndian ? 1 : 2;
+                int b1 = last - b2;
+                int b0 = last - b3;
+                for (int i = 0; i < frames; i++, p += frameSize) {
+                    int raw = data[p + b3] << 24 | (data[p + b2] & 255) << 16
+                            | (data[p + b1] & 255) << 8 | (data[p + b0] & 255);
+                    result[resultOffset + i] = (raw ^ signFlip) / 65536.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes a single sample at the absolute position (in bytes) of the buffer.
+     */
+    public double decodeSample(ByteBuffer buffer, int position) {
+        int last = bytesPerSample - 1;
+        long raw = 0;
+        for (int j = 0; j < bytesPerSample; j++) {
+            raw = raw << 8 | (buffer.get(position + (bigEndian ? j : last - j)) & 255);
+        }
+        if (isFloat) {
+            return toFloatSample(raw);
+        }
+        int shift = 32 - bytesPerSample * 8;
+        return ((((int) raw ^ signFlip) << shift) >> shift) * integerScale;
+    }
+
+    private void decodeFloat(byte[] data, int p, int frames, double[] result, int resultOffset) {
+        int last = bytesPerSample - 1;
+        for (int i = 0; i < frames; i++, p += frameSize) {
+            long raw = 0;
+            for (int j = 0; j < bytesPerSample; j++) {
+                raw = raw << 8 | (data[p + (bigEndian ? j : last - j)] & 255);
+            }
+            result[resultOffset + i] = toFloatSample(raw);
+        }
+    }
+
+    private double toFloatSample(long raw) {
+        return bytesPerSample == 4
+                ? Float.intBitsToFloat((int) raw) * FLOAT_SCALE
+                : Double.longBitsToDouble(raw) * FLOAT_SCALE;
+    }
+}
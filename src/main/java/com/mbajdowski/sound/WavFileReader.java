@@ -0,0 +1,275 @@
+package com.mbajdowski.sound;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * WAV (RIFF and RF64) reader which memory maps the data chunk instead of copying it to the heap,
+ * so files larger than the heap can be processed. Samples of every channel are read straight
+ * from the mapping through {@link ChannelView} and decoded with {@link SampleDecoder}.
+ */
+public class WavFileReader implements IAudioSource {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final long SEGMENT_SIZE = 1 << 30;
+    private static final long UNKNOWN_SIZE = 0xFFFFFFFFL;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final FileChannel fileChannel;
+    private int formatTag;
+    private int channels;
+    private float sampleRate;
+    private int blockAlign;
+    private int bitsPerSample;
+    private long dataOffset = -1;
+    private long dataSize;
+    private long sampleCount;
+    private long samplesPerSegment;
+    private MappedByteBuffer[] segments;
+    private SampleDecoder decoder;
+    private final ThreadLocal<byte[]> chunkBuffer = ThreadLocal.withInitial(
+            () -> new byte[Math.max(CHUNK_SIZE, blockAlign)]);
+    //Index of the next frame, shared by all channels
+    private long position = 0;
+
+    public WavFileReader(File file) throws IOException, UnsupportedAudioFileException {
+        this.fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            readHeader();
+            mapData();
+        } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    public static boolean isWavFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return false;
+                }
+            }
+            String riff = new String(header.array(), 0, 4, StandardCharsets.US_ASCII);
+            String wave = new String(header.array(), 8, 4, StandardCharsets.US_ASCII);
+            return ("RIFF".equals(riff) || "RF64".equals(riff)) && "WAVE".equals(wave);
+        }
+    }
+
+    @Override
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    public ChannelView getChannel(int channelIndex) {
+        if (channelIndex < 0 || channelIndex > channels - 1) {
+            throw new IllegalArgumentException("Channel index to out of band. Available channels: " + channels);
+        }
+        return new ChannelView(channelIndex);
+    }
+
+    @Override
+    public int read(int channelIndex, double[] samples, int offset, int length) {
+        int count = getChannel(channelIndex).read(position, samples, offset, length);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int read(double[][] samples, int offset, int length) {
+        if (samples.length > channels) {
+            throw new IllegalArgumentException("Channel index to out of band. Available channels: " + channels);
+        }
+        int count = read(position, 0, samples, offset, length);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+
+    private void readHeader() throws IOException, UnsupportedAudioFileException {
+        ByteBuffer header = readAt(0, 12);
+        boolean rf64 = "RF64".equals(readId(header));
+        long dataSize64 = -1;
+        header.getInt();
+        if (!"WAVE".equals(readId(header))) {
+            throw new UnsupportedAudioFileException("Not a WAVE file");
+        }
+
+        long position = 12;
+        long fileSize = fileChannel.size();
+        while (position + 8 <= fileSize && dataOffset < 0) {
+            ByteBuffer chunkHeader = readAt(position, 8);
+            String id = readId(chunkHeader);
+            long size = chunkHeader.getInt() & UNKNOWN_SIZE;
+            long body = position + 8;
+
+            if ("ds64".equals(id) && rf64) {
+                ByteBuffer ds64 = readAt(body, 16);
+                ds64.getLong();
+                dataSize64 = ds64.getLong();
+            } else if ("fmt ".equals(id)) {
+                readFormat(readAt(body, (int) Math.min(size, 40)));
+            } else if ("data".equals(id)) {
+                dataOffset = body;
+                dataSize = rf64 && size == UNKNOWN_SIZE && dataSize64 >= 0 ? dataSize64 : size;
+            }
+            //Chunks are word aligned
+            position = body + size + (size & 1);
+        }
+
+        if (blockAlign == 0) {
+            throw new UnsupportedAudioFileException("Missing fmt chunk");
+        }
+        if (dataOffset < 0) {
+            throw new UnsupportedAudioFileException("Missing data chunk");
+        }
+        //Files which are still being written may declare wrong size
+        dataSize = Math.min(dataSize, fileSize - dataOffset);
+        sampleCount = dataSize / blockAlign;
+    }
+
+    private void readFormat(ByteBuffer fmt) throws UnsupportedAudioFileException {
+        formatTag = fmt.getShort() & 0xFFFF;
+        channels = fmt.getShort() & 0xFFFF;
+        sampleRate = fmt.getInt();
+        fmt.getInt();
+        blockAlign = fmt.getShort() & 0xFFFF;
+        bitsPerSample = fmt.getShort() & 0xFFFF;
+        if (formatTag == FORMAT_EXTENSIBLE && fmt.remaining() >= 10) {
+            fmt.position(fmt.position() + 8);
+            //First two bytes of the sub format GUID hold the actual format
+            formatTag = fmt.getShort() & 0xFFFF;
+        }
+
+        boolean supportedPcm = formatTag == FORMAT_PCM
+                && (bitsPerSample == 8 || bitsPerSample == 16 || bitsPerSample == 24 || bitsPerSample == 32);
+        boolean supportedFloat = formatTag == FORMAT_FLOAT && (bitsPerSample == 32 || bitsPerSample == 64);
+        if (!supportedPcm && !supportedFloat) {
+            throw new UnsupportedAudioFileException(
+                    "Unsupported WAV format " + formatTag + " with " + bitsPerSample + " bits per sample");
+        }
+        if (channels < 1 || blockAlign < channels * bitsPerSample / 8) {
+            throw new UnsupportedAudioFileException("Invalid WAV block alignment");
+        }
+
+        AudioFormat.Encoding encoding = formatTag == FORMAT_FLOAT ? AudioFormat.Encoding.PCM_FLOAT
+                : bitsPerSample == 8 ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+        decoder = new SampleDecoder(new AudioFormat(encoding, sampleRate, bitsPerSample, channels,
+                blockAlign, sampleRate, false));
+    }
+
+    private void mapData() throws IOException {
+        //Segments hold whole frames, so a sample never crosses two mappings
+        samplesPerSegment = SEGMENT_SIZE / blockAlign;
+        int noOfSegments = (int) ((sampleCount + samplesPerSegment - 1) / samplesPerSegment);
+        segments = new MappedByteBuffer[noOfSegments];
+        for (int i = 0; i < noOfSegments; i++) {
+            long start = i * samplesPerSegment * blockAlign;
+            long size = Math.min(samplesPerSegment * blockAlign, sampleCount * blockAlign - start);
+            segments[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, dataOffset + start, size);
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of WAV header");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes samples of channels fromChannel .. fromChannel + samples.length - 1 chunk by chunk with the
+     * same tight loops as other sources. Every chunk is copied from the mapping once for all channels.
+     */
+    private int read(long fromIndex, int fromChannel, double[][] samples, int offset, int length) {
+        int count = (int) Math.max(0, Math.min(length, sampleCount - fromIndex));
+        int done = 0;
+        while (done < count) {
+            long index = fromIndex + done;
+            ByteBuffer segment = segments[(int) (index / samplesPerSegment)].duplicate();
+            int inSegment = (int) (index % samplesPerSegment);
+            int frames = (int) Math.min(Math.min(count - done, samplesPerSegment - inSegment),
+                    Math.max(1, CHUNK_SIZE / blockAlign));
+
+            byte[] chunk = chunkBuffer.get();
+            segment.position(inSegment * blockAlign);
+            segment.get(chunk, 0, frames * blockAlign);
+            for (int c = 0; c < samples.length; c++) {
+                decoder.decode(chunk, 0, frames, fromChannel + c, samples[c], offset + done);
+            }
+            done += frames;
+        }
+        return count;
+    }
+
+    private static String readId(ByteBuffer buffer) {
+        byte[] id = new byte[4];
+        buffer.get(id);
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Zero copy view of the samples of one channel.
+     */
+    public class ChannelView {
+
+        private final int channelIndex;
+        private final int channelOffset;
+
+        private ChannelView(int channelIndex) {
+            this.channelIndex = channelIndex;
+            this.channelOffset = channelIndex * (bitsPerSample / 8);
+        }
+
+        public long getLength() {
+            return sampleCount;
+        }
+
+        public double getSample(long index) {
+            ByteBuffer segment = segments[(int) (index / samplesPerSegment)];
+            int position = (int) (index % samplesPerSegment) * blockAlign + channelOffset;
+            return decoder.decodeSample(segment, position);
+        }
+
+        /**
+         * Reads samples starting from the given index, returns the number of samples read.
+         */
+        public int read(long fromIndex, double[] samples, int offset, int length) {
+            return WavFileReader.this.read(fromIndex, channelIndex, new double[][]{samples}, offset, length);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.mbajdowski.utils;
+
+/**
+ * Precomputed mapping of FFT bins onto frequency buckets. A bin belongs to the first bucket whose
+ * frequency times {@link #COEFFICIENT} is not lower than the bin frequency, bins above the last bucket
+ * are ignored. Bins of a bucket are contiguous, so mapping a frame is a single pass of max reductions
+ * over the bucket ranges. Instances are immutable and can be shared between threads.
+ */
+public class BucketMap {
+
+    public static final float COEFFICIENT = 1.5f;
+
+    private final int[] bucketOfBin;
+    private final int[] rangeStart;
+    private final int[] rangeEnd;
+
+    /**
+     * @param noOfBins number of bins passed to {@link #map}, bin i has frequency (i + 1) * sampleRate / (noOfBins * 2)
+     */
+    public BucketMap(int[] freqBuckets, int noOfBins, float sampleRate) {
+        this.bucketOfBin = new int[noOfBins];
+        this.rangeStart = new int[freqBuckets.length];
+        this.rangeEnd = new int[freqBuckets.length];
+
+        //Bin frequencies only grow, so the bucket search continues where the previous bin stopped
+        int bucket = 0;
+        for (int i = 0; i < noOfBins; i++) {
+            float freq = (i + 1) * sampleRate / (noOfBins * 2);
+            while (bucket < freqBuckets.length && freq > freqBuckets[bucket] * COEFFICIENT) {
+                bucket++;
+            }
+            bucketOfBin[i] = bucket < freqBuckets.length ? bucket : -1;
+        }
+
+        //Empty buckets keep the empty range [0, 0)
+        for (int i = noOfBins - 1; i >= 0; i--) {
+            if (bucketOfBin[i] >= 0) {
+                rangeStart[bucketOfBin[i]] = i;
+            }
+        }
+        for (int i = 0; i < noOfBins; i++) {
+            if (bucketOfBin[i] >= 0) {
+                rangeEnd[bucketOfBin[i]] = i + 1;
+            }
+        }
+    }
+
+    public int getNoOfBins() {
+        return bucketOfBin.length;
+    }
+
+    public int getNoOfBuckets() {
+        return rangeStart.length;
+    }
+
+    // index of the bucket of the bin, -1 if the bin is above all buckets
+    public int getBucket(int bin) {
+        return bucketOfBin[bin];
+    }
+
+    public int[] map(int[] fftAbs) {
+        if (fftAbs.length != bucketOfBin.length) {
+            throw new IllegalArgumentException("Expected " + bucketOfBin.length + " bins but got " + fftAbs.length);
+        }
+        int[] result = new int[rangeStart.length];
+        for (int j = 0; j < result.length; j++) {
+            int highest = 0;
+            for (int i = rangeStart[j]; i < rangeEnd[j]; i++) {
+                highest = Math.max(highest, fftAbs[i]);
+            }
+            result[j] = highest;
+        }
+        return result;
+    }
+
+    /**
+     * Maps magnitudes of bins re[from + i], im[from + i] without materialising them. The square root is
+     * monotonic, so it is taken once per bucket from the highest squared magnitude.
+     */
+    public int[] map(double[] re, double[] im, int from) {
+        int[] result = new int[rangeStart.length];
+        map(re, im, from, result, 0);
+        return result;
+    }
+
+    // writes the buckets to result[resultOffset ..], so spectra of several channels can share one array
+    public void map(double[] re, double[] im, int from, int[] result, int resultOffset) {
+        if (re.length - from < bucketOfBin.length || im.length - from < bucketOfBin.length) {
+            throw new IllegalArgumentException("Expected " + bucketOfBin.length + " bins from index " + from);
+        }
+        for (int j = 0; j < rangeStart.length; j++) {
+            double highest = 0;
+            for (int i = from + rangeStart[j]; i < from + rangeEnd[j]; i++) {
+                highest = Math.max(highest, re[i] * re[i] + im[i] * im[i]);
+            }
+            result[resultOffset + j] = (int) Math.sqrt(highest);
+        }
+    }
+}
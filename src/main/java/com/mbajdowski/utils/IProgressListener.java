@@ -0,0 +1,9 @@
+package com.mbajdowski.utils;
+
+public interface IProgressListener {
+
+    /**
+     * Called from the generating thread every time a frame has been handed over for encoding.
+     */
+    void progress(int framesDone, int framesInTotal);
+}
@@ -89,18 +89,8 @@ public class MathHelper {
         return result;
     }
 
-    private static int byteToInt(byte... bytes) {
-        if (bytes.length != 2) {
-            throw new IllegalArgumentException("Byte array must have size of 2");
-        }
-        int result = 0;
+    private static int byteToInt(byte high, byte low) {
         int littleMask = 255;
-        for (byte aByte : bytes) {
-            int intFromByte = littleMask & aByte;
-            result <<= 8;
-            result |= intFromByte;
-        }
-
-        return result;
+        return (high & littleMask) << 8 | (low & littleMask);
     }
 }
@@ -1,6 +1,6 @@
 package com.mbajdowski.utils;
 
-public class ProgressPrinter {
+public class ProgressPrinter implements IProgressListener {
     private String title;
     private int nrOfProgressSteps;
     private double noOfIterations;
@@ -15,13 +15,22 @@ public class ProgressPrinter {
         System.out.println(System.lineSeparator()+title);
     }
 
-    public void resetCurrentIteration(){
+    public synchronized void resetCurrentIteration(){
         this.currentIteration = 0;
     }
 
-    public void incrementAndPrint(){
+    public synchronized void incrementAndPrint(){
         currentIteration++;
+        print();
+    }
+
+    @Override
+    public synchronized void progress(int framesDone, int framesInTotal) {
+        currentIteration = framesDone;
+        print();
+    }
 
+    private void print() {
         int percent = (int)(Math.ceil(currentIteration*100/this.noOfIterations));
         int currentSections = percent/(100/this.nrOfProgressSteps);
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,96 @@
+package com.mbajdowski.utils;
+
+/**
+ * Minimum and maximum of the spectra inside a window of frames which only moves forward.
+ * Frames are kept in two monotonic deques, so each frame is added and removed once
+ * and the extrema of the current window are available in amortized O(1).
+ */
+public class SlidingExtrema {
+
+    private final MonotonicDeque minDeque = new MonotonicDeque(false);
+    private final MonotonicDeque maxDeque = new MonotonicDeque(true);
+
+    public void add(int frame, int[] spectrum) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int value : spectrum) {
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+        }
+        minDeque.push(frame, min);
+        maxDeque.push(frame, max);
+    }
+
+    public void removeBefore(int frame) {
+        minDeque.removeBefore(frame);
+        maxDeque.removeBefore(frame);
+    }
+
+    public int[] getExtrema() {
+        int min = minDeque.isEmpty() ? Integer.MAX_VALUE : minDeque.peek();
+        int max = maxDeque.isEmpty() ? Integer.MIN_VALUE : maxDeque.peek();
+        return new int[]{min, max};
+    }
+
+    private static class MonotonicDeque {
+        private final boolean keepMax;
+        private int[] frames = new int[16];
+        private int[] values = new int[16];
+        private int head;
+        private int size;
+
+        MonotonicDeque(boolean keepMax) {
+            this.keepMax = keepMax;
+        }
+
+        void push(int frame, int value) {
+            //Drop values which can never be the extremum again
+            while (size > 0) {
+                int last = values[(head + size - 1) & (values.length - 1)];
+                if (keepMax ? last > value : last < value) {
+                    break;
+                }
+                size--;
+            }
+            if (size == values.length) {
+                grow();
+            }
+            int tail = (head + size) & (values.length - 1);
+            frames[tail] = frame;
+            values[tail] = value;
+            size++;
+        }
+
+        void removeBefore(int frame) {
+            while (size > 0 && frames[head] < frame) {
+                head = (head + 1) & (values.length - 1);
+                size--;
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int peek() {
+            return values[head];
+        }
+
+        private void grow() {
+            int[] newFrames = new int[frames.length * 2];
+            int[] newValues = new int[values.length * 2];
+            for (int i = 0; i < size; i++) {
+                int index = (head + i) & (values.length - 1);
+                newFrames[i] = frames[index];
+                newValues[i] = values[index];
+            }
+            frames = newFrames;
+            values = newValues;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.mbajdowski.utils;
+
+import com.mbajdowski.fft.AnalysisMode;
+import com.mbajdowski.fft.ISpectrumSource;
+import com.mbajdowski.sound.ChannelMode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Directory of analysed spectra, so rendering the same track again with another drawer skips decoding
+ * and analysis. Every entry is a file named by a key hashed from the audio content and the analysis
+ * settings. It holds a header (magic, version, frame count, channels, number of buckets) followed by one
+ * row of big endian ints per frame, and is memory mapped when loaded.
+ */
+public class SpectrumCache {
+
+    private static final int MAGIC = 0x46565343; //FVSC
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+    private static final String EXTENSION = ".spectra";
+
+    private final Path directory;
+
+    public SpectrumCache(File directory) {
+        this.directory = directory.toPath();
+    }
+
+    public static String createKey(File audioFile, int fps, int noOfBuckets, int windowSize,
+                                   AnalysisMode analysisMode, ChannelMode channelMode) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileChannel channel = FileChannel.open(audioFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        digest.update(ByteBuffer.allocate(5 * Integer.BYTES).putInt(fps).putInt(noOfBuckets).putInt(windowSize)
+                .putInt(analysisMode.ordinal()).putInt(channelMode.ordinal()).array());
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns spectra stored under the key, null if there are none.
+     */
+    public ISpectrumSource load(String key) throws IOException {
+        Path path = directory.resolve(key + EXTENSION);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        int frameCount = buffer.getInt();
+        int channels = buffer.getInt();
+        int noOfBuckets = buffer.getInt();
+        if (buffer.remaining() != (long) frameCount * channels * noOfBuckets * Integer.BYTES) {
+            return null;
+        }
+        return new CachedSpectra(buffer.asIntBuffer(), frameCount, channels, noOfBuckets);
+    }
+
+    /**
+     * Wraps the source so every spectrum read from it is written under the key as well. The entry
+     * becomes visible only when the wrapper is closed after all frames have been read.
+     */
+    public ISpectrumSource store(String key, ISpectrumSource source) throws IOException {
+        Files.createDirectories(directory);
+        Path tmpPath = Files.createTempFile(directory, key, ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpPath.toFile())));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(source.getFrameCount());
+            out.writeInt(source.getChannels());
+            out.writeInt(source.getNoOfBuckets());
+            return new StoringSpectra(source, out, tmpPath, directory.resolve(key + EXTENSION));
+        } catch (IOException | RuntimeException e) {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            } finally {
+                Files.deleteIfExists(tmpPath);
+            }
+            throw e;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class CachedSpectra implements ISpectrumSource {
+
+        private final IntBuffer data;
+        private final int frameCount;
+        private final int channels;
+        private final int noOfBuckets;
+
+        CachedSpectra(IntBuffer data, int frameCount, int channels, int noOfBuckets) {
+            this.data = data;
+            this.frameCount = frameCount;
+            this.channels = channels;
+            this.noOfBuckets = noOfBuckets;
+        }
+
+        @Override
+        public int getFrameCount() {
+            return frameCount;
+        }
+
+        @Override
+        public int getChannels() {
+            return channels;
+        }
+
+        @Override
+        public int getNoOfBuckets() {
+            return noOfBuckets;
+        }
+
+        @Override
+        public int read(int[][] spectra, int count) {
+            int rowLength = channels * noOfBuckets;
+            int noOfFrames = Math.min(count, data.remaining() / Math.max(rowLength, 1));
+            for (int i = 0; i < noOfFrames; i++) {
+                spectra[i] = new int[rowLength];
+                data.get(spectra[i]);
+            }
+            return noOfFrames;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class StoringSpectra implements ISpectrumSource {
+
+        private final ISpectrumSource source;
+        private final DataOutputStream out;
+        private final Path tmpPath;
+        private final Path path;
+        private int framesWritten = 0;
+
+        StoringSpectra(ISpectrumSource source, DataOutputStream out, Path tmpPath, Path path) {
+            this.source = source;
+            this.out = out;
+            this.tmpPath = tmpPath;
+            this.path = path;
+        }
+
+        @Override
+        public int getFrameCount() {
+            return source.getFrameCount();
+        }
+
+        @Override
+        public int getChannels() {
+            return source.getChannels();
+        }
+
+        @Override
+        public int getNoOfBuckets() {
+            return source.getNoOfBuckets();
+        }
+
+        @Override
+        public int read(int[][] spectra, int count) throws IOException, InterruptedException {
+            int noOfFrames = source.read(spectra, count);
+            for (int i = 0; i < noOfFrames; i++) {
+                for (int value : spectra[i]) {
+                    out.writeInt(value);
+                }
+            }
+            framesWritten += noOfFrames;
+            return noOfFrames;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                try {
+                    out.close();
+                    if (framesWritten == source.getFrameCount()) {
+                        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } finally {
+                    source.close();
+                }
+            } finally {
+                Files.deleteIfExists(tmpPath);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.mbajdowski.utils;
+
+import com.mbajdowski.drawer.ISpectrumHistory;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Spectra of all frames of a track in one contiguous block of ints, row after row, either in a heap array
+ * or off-heap in a direct buffer, which keeps very long tracks out of the heap. Values are accessed in O(1),
+ * rows are viewed without copying and extrema of a range of frames are found in a single pass.
+ */
+public class SpectrumStore implements ISpectrumHistory {
+
+    private final IntBuffer data;
+    private final int frameCount;
+    private final int rowLength;
+
+    private SpectrumStore(IntBuffer data, int frameCount, int rowLength) {
+        this.data = data;
+        this.frameCount = frameCount;
+        this.rowLength = rowLength;
+    }
+
+    public static SpectrumStore allocate(int frameCount, int rowLength) {
+        return new SpectrumStore(IntBuffer.allocate(size(frameCount, rowLength, 1)), frameCount, rowLength);
+    }
+
+    public static SpectrumStore allocateDirect(int frameCount, int rowLength) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size(frameCount, rowLength, Integer.BYTES));
+        return new SpectrumStore(buffer.order(ByteOrder.nativeOrder()).asIntBuffer(), frameCount, rowLength);
+    }
+
+    private static int size(int frameCount, int rowLength, int bytesPerValue) {
+        long size = (long) frameCount * rowLength * bytesPerValue;
+        if (frameCount < 0 || rowLength < 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot store " + frameCount + " frames of " + rowLength + " values");
+        }
+        return (int) size;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getRowLength() {
+        return rowLength;
+    }
+
+    public void set(int frame, int[] spectrum) {
+        if (spectrum.length != rowLength) {
+            throw new IllegalArgumentException("Spectrum has " + spectrum.length + " values instead of " + rowLength);
+        }
+        int offset = offset(frame);
+        for (int i = 0; i < rowLength; i++) {
+            data.put(offset + i, spectrum[i]);
+        }
+    }
+
+    public int get(int frame, int bucket) {
+        return data.get(offset(frame) + bucket);
+    }
+
+    /**
+     * View of the row of the frame sharing the values of the store.
+     */
+    public IntBuffer getRow(int frame) {
+        int offset = offset(frame);
+        IntBuffer row = data.duplicate();
+        //Casts keep the Java 8 signatures of Buffer
+        ((Buffer) row).limit(offset + rowLength);
+        ((Buffer) row).position(offset);
+        return row.slice();
+    }
+
+    @Override
+    public int getFirstFrame() {
+        return 0;
+    }
+
+    @Override
+    public int getEndFrame() {
+        return frameCount;
+    }
+
+    /**
+     * Copy of the row of the frame, as drawers get arrays.
+     */
+    @Override
+    public int[] get(int frame) {
+        int[] spectrum = new int[rowLength];
+        int offset = offset(frame);
+        for (int i = 0; i < rowLength; i++) {
+            spectrum[i] = data.get(offset + i);
+        }
+        return spectrum;
+    }
+
+    /**
+     * Minimum and maximum of all values of the frames from fromFrame inclusive to toFrame exclusive.
+     */
+    public int[] findExtrema(int fromFrame, int toFrame) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        int end = toFrame > fromFrame ? offset(toFrame - 1) + rowLength : 0;
+        for (int i = toFrame > fromFrame ? offset(fromFrame) : 0; i < end; i++) {
+            int value = data.get(i);
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+        }
+        return new int[]{min, max};
+    }
+
+    private int offset(int frame) {
+        if (frame < 0 || frame >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " is not within " + frameCount + " frames");
+        }
+        return frame * rowLength;
+    }
+}
@@ -0,0 +1,58 @@
+package com.mbajdowski.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps only the spectra of the frames which are still needed while the animation is streamed,
+ * addressed by their absolute frame index. Extrema are tracked incrementally with {@link SlidingExtrema},
+ * so the window passed to {@link #findExtrema(int, int)} may only move forward.
+ */
+public class SpectrumWindow {
+
+    private final List<int[]> spectra = new ArrayList<>();
+    private final SlidingExtrema slidingExtrema = new SlidingExtrema();
+    private int firstFrame = 0;
+    private int extremaFrom = 0;
+    private int extremaTo = 0;
+
+    public void add(int[] spectrum) {
+        spectra.add(spectrum);
+    }
+
+    public int getFirstFrame() {
+        return firstFrame;
+    }
+
+    public int getEndFrame() {
+        return firstFrame + spectra.size();
+    }
+
+    public int[] get(int frame) {
+        return spectra.get(frame - firstFrame);
+    }
+
+    public int[] findExtrema(int fromFrame, int toFrame) {
+        if (fromFrame < extremaFrom || toFrame < extremaTo) {
+            throw new IllegalArgumentException("Extrema window can only move forward");
+        }
+
+        //Frames skipped by the window are never added
+        extremaTo = Math.max(extremaTo, fromFrame);
+        for (; extremaTo < toFrame; extremaTo++) {
+            slidingExtrema.add(extremaTo, get(extremaTo));
+        }
+        slidingExtrema.removeBefore(fromFrame);
+        extremaFrom = fromFrame;
+
+        return slidingExtrema.getExtrema();
+    }
+
+    public void removeBefore(int frame) {
+        int count = Math.min(frame - firstFrame, spectra.size());
+        if (count > 0) {
+            spectra.subList(0, count).clear();
+            firstFrame += count;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.mbajdowski.video;
+
+import com.mbajdowski.drawer.FramePool;
+import com.mbajdowski.drawer.ISpectrumHistory;
+import com.mbajdowski.drawer.IStatelessFrameDrawer;
+import com.mbajdowski.metrics.Metrics;
+import com.mbajdowski.metrics.Stage;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draws frames on worker threads while a single encoder thread writes them to the {@link IFrameSink} in frame order.
+ * Drawn frames wait in a bounded queue, so producers are blocked when the encoder falls behind.
+ * Every frame carries the history of spectra it needs, so frames of any drawer are drawn concurrently. Only
+ * adapted drawers which are not thread safe are run on a single worker to keep their own history in order.
+ * Encoded frames are returned to a {@link FramePool} and reused by the drawers.
+ * Thread safe drawers may draw on a shared executor, which is left running when the pipeline ends.
+ * The sink is closed when the pipeline finishes or is aborted.
+ */
+public class FramePipeline {
+
+    private static final long OFFER_TIMEOUT_MS = 100;
+    private static final long CLOSE_TIMEOUT_MS = 10000;
+    private static final Future<BufferedImage> END_OF_STREAM = new CompletableFuture<>();
+
+    private final IStatelessFrameDrawer frameDrawer;
+    private final IFrameSink frameSink;
+    private final ExecutorService drawExecutor;
+    private final boolean ownsDrawExecutor;
+    private final ExecutorService encodeExecutor;
+    private final BlockingQueue<Future<BufferedImage>> queue;
+    private final FramePool framePool;
+    private final Future<?> encoding;
+    private boolean sinkClosed = false;
+    //Read by the workers after the hand-off of a frame, which publishes it
+    private Metrics metrics = Metrics.DISABLED;
+
+    public FramePipeline(IStatelessFrameDrawer frameDrawer, IFrameSink frameSink, int drawThreads) {
+        this(frameDrawer, frameSink, null, drawThreads);
+    }
+
+    /**
+     * @param sharedExecutor executor with drawThreads threads used by thread safe drawers, null creates own threads
+     */
+    public FramePipeline(IStatelessFrameDrawer frameDrawer, IFrameSink frameSink, ExecutorService sharedExecutor,
+                         int drawThreads) {
+        this.frameDrawer = frameDrawer;
+        this.frameSink = frameSink;
+
+        int workers = frameDrawer.isThreadSafe() ? drawThreads : 1;
+        this.ownsDrawExecutor = sharedExecutor == null || !frameDrawer.isThreadSafe();
+        this.drawExecutor = ownsDrawExecutor ? Executors.newFixedThreadPool(workers) : sharedExecutor;
+        this.encodeExecutor = Executors.newSingleThreadExecutor();
+        this.queue = new ArrayBlockingQueue<>(workers * 2);
+        //Enough frames for all queued and currently drawn or encoded frames
+        this.framePool = new FramePool(workers * 3 + 1);
+        this.encoding = encodeExecutor.submit(() -> {
+            encodeFrames();
+            return null;
+        });
+    }
+
+    /**
+     * Records drawing and encoding stages, needs to be set before the first frame is submitted.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param history spectra of the frame and of the preceding frames drawn with it
+     */
+    public void submit(int frame, ISpectrumHistory history, int[] extrema) throws IOException, InterruptedException {
+        Future<BufferedImage> drawing = drawExecutor.submit(() -> {
+            long start = metrics.start();
+            BufferedImage image = frameDrawer.drawFrame(frame, history, extrema, framePool);
+            metrics.stop(Stage.DRAWING, start);
+            return image;
+        });
+        offer(drawing);
+    }
+
+    public void finish() throws IOException, InterruptedException {
+        try {
+            offer(END_OF_STREAM);
+            try {
+                encoding.get();
+            } catch (ExecutionException e) {
+                throw asIOException(e);
+            }
+            sinkClosed = true;
+            frameSink.close();
+        } catch (Throwable e) {
+            abort(e);
+            throw e;
+        }
+        shutdown();
+    }
+
+    /**
+     * Stops drawing and encoding and closes the sink, failures of closing are added to the given failure.
+     */
+    public void abort(Throwable failure) {
+        shutdown();
+        if (sinkClosed) {
+            return;
+        }
+        sinkClosed = true;
+        boolean interrupted = false;
+        try {
+            //The encoder may be in the middle of a frame
+            encodeExecutor.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        try {
+            frameSink.close();
+        } catch (IOException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void shutdown() {
+        if (ownsDrawExecutor) {
+            drawExecutor.shutdownNow();
+        } else {
+            //Frames still waiting in the shared executor are not needed any more
+            for (Future<BufferedImage> frame : queue) {
+                if (frame != END_OF_STREAM) {
+                    frame.cancel(true);
+                }
+            }
+        }
+        encodeExecutor.shutdownNow();
+    }
+
+    private void offer(Future<BufferedImage> frame) throws IOException, InterruptedException {
+        while (!queue.offer(frame, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            if (encoding.isDone()) {
+                //The pipeline cannot go on without its encoder
+                try {
+                    try {
+                        encoding.get();
+                    } catch (ExecutionException e) {
+                        throw asIOException(e);
+                    }
+                    throw new IllegalStateException("Encoder stopped before the end of the stream");
+                } catch (IOException | RuntimeException | Error e) {
+                    abort(e);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void encodeFrames() throws IOException, InterruptedException, ExecutionException {
+        while (true) {
+            Future<BufferedImage> frame = queue.take();
+            if (frame == END_OF_STREAM) {
+                return;
+            }
+            BufferedImage imgFrame = frame.get();
+            long start = metrics.start();
+            frameSink.write(imgFrame);
+            metrics.stop(Stage.ENCODING, start);
+            framePool.release(imgFrame);
+        }
+    }
+
+    private static IOException asIOException(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ExecutionException) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+}
@@ -0,0 +1,66 @@
+package com.mbajdowski.video;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Kinds of frame sinks selectable from the command line. Raw frames and image sequences let a faster
+ * external encoder replace the pure Java H.264 encoder of {@link #MP4}.
+ */
+public enum FrameSinkType {
+    //H.264 MP4 file encoded with jcodec
+    MP4(".video.mp4"),
+    //Packed RGB24 frames written to a file, named pipe or stdout
+    RGB(".rgb"),
+    //Planar full range YUV 4:2:0 frames written to a file, named pipe or stdout
+    YUV(".yuv"),
+    //Directory of numbered PNG images written in parallel
+    PNG(".frames"),
+    //Directory of numbered PPM images written in parallel
+    PPM(".frames"),
+    //Window showing the latest frame, for live mode
+    PREVIEW(null);
+
+    private final String defaultSuffix;
+
+    FrameSinkType(String defaultSuffix) {
+        this.defaultSuffix = defaultSuffix;
+    }
+
+    /**
+     * Output next to the audio file, used when none is given.
+     */
+    public String getDefaultOutput(File audioFile) {
+        return defaultSuffix != null ? audioFile.getAbsolutePath() + defaultSuffix : null;
+    }
+
+    /**
+     * @param output  file, directory of images or '-' for stdout
+     * @param threads number of threads writing images
+     */
+    public IFrameSink open(String output, int fps, int threads) throws IOException {
+        switch (this) {
+            case MP4:
+                if (output.equals("-")) {
+                    throw new IllegalArgumentException("MP4 cannot be written to stdout, use RGB or YUV");
+                }
+                return PictureSequenceEncoder.createSequenceEncoder(new File(output), fps);
+            case RGB:
+                return new RawFrameWriter(openStream(output), RawFrameWriter.PixelFormat.RGB24);
+            case YUV:
+                return new RawFrameWriter(openStream(output), RawFrameWriter.PixelFormat.YUV420);
+            case PNG:
+                return new ImageSequenceWriter(new File(output), ImageSequenceWriter.Format.PNG, threads);
+            case PPM:
+                return new ImageSequenceWriter(new File(output), ImageSequenceWriter.Format.PPM, threads);
+            default:
+                return new PreviewWindow("FreqVisualizer");
+        }
+    }
+
+    private static OutputStream openStream(String output) throws IOException {
+        return output.equals("-") ? System.out : new FileOutputStream(output);
+    }
+}
@@ -0,0 +1,14 @@
+package com.mbajdowski.video;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of drawn frames. Frames may be reused by the caller once write returns,
+ * sinks which keep them need to copy them.
+ */
+public interface IFrameSink extends Closeable {
+
+    void write(BufferedImage frame) throws IOException;
+}
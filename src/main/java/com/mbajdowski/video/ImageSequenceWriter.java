@@ -0,0 +1,134 @@
+package com.mbajdowski.video;
+
+import com.mbajdowski.drawer.FramePool;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes frames as numbered PNG or binary PPM images (000000.png, 000001.png, ...) into a directory.
+ * Frames are copied and compressed on worker threads, at most two frames per thread are pending,
+ * so a slow disk blocks the writer instead of filling the heap. The first failed write is reported
+ * by the next write or by close.
+ */
+public class ImageSequenceWriter implements IFrameSink {
+
+    public enum Format {
+        PNG,
+        PPM
+    }
+
+    private final File directory;
+    private final Format format;
+    private final ExecutorService executor;
+    private final Semaphore pendingFrames;
+    private final FramePool copies;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private int frameNo;
+
+    public ImageSequenceWriter(File directory, Format format, int threads) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        this.directory = directory;
+        this.format = format;
+        //Daemon threads, so an aborted sequence does not keep the JVM running
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "image-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pendingFrames = new Semaphore(threads * 2);
+        this.copies = new FramePool(threads * 2);
+    }
+
+    public File getFile(int frameNo) {
+        return new File(directory, String.format("%06d.%s", frameNo, format.name().toLowerCase()));
+    }
+
+    @Override
+    public void write(BufferedImage frame) throws IOException {
+        checkFailure();
+        try {
+            pendingFrames.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for image writes");
+        }
+
+        //The caller reuses the frame, the copy is written
+        BufferedImage copy = copies.acquire(frame.getWidth(), frame.getHeight());
+        if (frame.getType() == BufferedImage.TYPE_INT_RGB) {
+            int[] pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+            int[] copyPixels = ((DataBufferInt) copy.getRaster().getDataBuffer()).getData();
+            System.arraycopy(pixels, 0, copyPixels, 0, copyPixels.length);
+        } else {
+            Graphics g = copy.getGraphics();
+            g.drawImage(frame, 0, 0, null);
+            g.dispose();
+        }
+
+        File file = getFile(frameNo++);
+        executor.execute(() -> {
+            try {
+                writeImage(copy, file);
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                copies.release(copy);
+                pendingFrames.release();
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for image writes");
+        }
+        checkFailure();
+    }
+
+    private void writeImage(BufferedImage image, File file) throws IOException {
+        if (format == Format.PNG) {
+            if (!ImageIO.write(image, "png", file)) {
+                throw new IOException("No PNG writer available");
+            }
+            return;
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            String header = "P6\n" + image.getWidth() + " " + image.getHeight() + "\n255\n";
+            out.write(header.getBytes(StandardCharsets.US_ASCII));
+            new RawFrameWriter(out).write(image);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable cause = failure.get();
+        if (cause instanceof IOException) {
+            throw new IOException("Writing image failed: " + cause.getMessage(), cause);
+        }
+        if (cause != null) {
+            throw (RuntimeException) cause;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.mbajdowski.video;
+
+import org.jcodec.common.Codec;
+import org.jcodec.common.DemuxerTrack;
+import org.jcodec.common.MuxerTrack;
+import org.jcodec.common.VideoCodecMeta;
+import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.io.SeekableByteChannel;
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Packet;
+import org.jcodec.containers.mp4.demuxer.MP4Demuxer;
+import org.jcodec.containers.mp4.muxer.MP4Muxer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Joins H.264 MP4 files of the same size into one file without decoding them. Packets are copied
+ * and only their timestamps are renumbered, so every segment needs to start with a key frame,
+ * which is always the case for files written by {@link PictureSequenceEncoder}.
+ */
+public class Mp4Concatenator {
+
+    public static void concatenate(List<File> segments, File output, int fps) throws IOException {
+        try (SeekableByteChannel out = NIOUtils.writableChannel(output)) {
+            MP4Muxer muxer = MP4Muxer.createMP4MuxerToChannel(out);
+            MuxerTrack videoTrack = null;
+            long frameNo = 0;
+            for (File segment : segments) {
+                try (SeekableByteChannel in = NIOUtils.readableChannel(segment)) {
+                    MP4Demuxer demuxer = MP4Demuxer.createMP4Demuxer(in);
+                    DemuxerTrack segmentTrack = demuxer.getVideoTrack();
+                    VideoCodecMeta meta = segmentTrack.getMeta().getVideoCodecMeta();
+                    if (videoTrack == null) {
+                        videoTrack = muxer.addVideoTrack(Codec.H264,
+                                VideoCodecMeta.createSimpleVideoCodecMeta(meta.getSize(), ColorSpace.YUV420J));
+                    }
+
+                    Packet packet;
+                    while ((packet = segmentTrack.nextFrame()) != null) {
+                        videoTrack.addFrame(Packet.createPacket(packet.getData(), frameNo, fps, 1, frameNo,
+                                packet.getFrameType(), null));
+                        frameNo++;
+                    }
+                }
+            }
+            muxer.finish();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mbajdowski.video;
+
+import org.jcodec.api.transcode.PixelStore;
+import org.jcodec.api.transcode.SinkImpl;
+import org.jcodec.api.transcode.VideoFrameWithPacket;
+import org.jcodec.common.Codec;
+import org.jcodec.common.Format;
+import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.io.SeekableByteChannel;
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Packet;
+import org.jcodec.common.model.Picture;
+import org.jcodec.common.model.Rational;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * H.264 MP4 encoder accepting pictures already in the encoder color space (YUV420J).
+ * Unlike AWTSequenceEncoder it does not convert every frame to an RGB picture first,
+ * BufferedImages are converted straight into a single reused YUV picture.
+ */
+public class PictureSequenceEncoder implements IFrameSink {
+
+    //Every KEY_FRAME_INTERVAL-th frame of jcodec H.264 encoder is an IDR frame
+    public static final int KEY_FRAME_INTERVAL = 25;
+
+    private final SinkImpl sink;
+    private final Rational fps;
+    private Picture conversionBuffer;
+    private int timestamp;
+    private int frameNo;
+
+    public PictureSequenceEncoder(SeekableByteChannel out, Rational fps) throws IOException {
+        this.fps = fps;
+        this.sink = SinkImpl.createWithStream(out, Format.MOV, Codec.H264, null);
+        this.sink.init();
+        if (sink.getInputColor() != ColorSpace.YUV420J) {
+            throw new IllegalStateException("Unexpected encoder color space: " + sink.getInputColor());
+        }
+    }
+
+    public static PictureSequenceEncoder createSequenceEncoder(File file, int fps) throws IOException {
+        return new PictureSequenceEncoder(NIOUtils.writableChannel(file), Rational.R(fps, 1));
+    }
+
+    public void encodePicture(Picture picture) throws IOException {
+        if (picture.getColor() != ColorSpace.YUV420J) {
+            throw new IllegalArgumentException("The input picture is expected in YUV420J color.");
+        }
+
+        Packet packet = Packet.createPacket(null, timestamp, fps.getNum(), fps.getDen(), frameNo,
+                Packet.FrameType.KEY, null);
+        sink.outputVideoFrame(new VideoFrameWithPacket(packet, new PixelStore.LoanerPicture(picture, 0)));
+
+        timestamp += fps.getDen();
+        frameNo++;
+    }
+
+    public void encodeImage(BufferedImage img) throws IOException {
+        if (conversionBuffer == null
+                || conversionBuffer.getWidth() != img.getWidth()
+                || conversionBuffer.getHeight() != img.getHeight()) {
+            conversionBuffer = YuvConverter.createPicture(img.getWidth(), img.getHeight());
+        }
+        YuvConverter.fromBufferedImage(img, conversionBuffer);
+        encodePicture(conversionBuffer);
+    }
+
+    public void finish() throws IOException {
+        //Sink closes the output channel
+        sink.finish();
+    }
+
+    @Override
+    public void write(BufferedImage frame) throws IOException {
+        encodeImage(frame);
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+}
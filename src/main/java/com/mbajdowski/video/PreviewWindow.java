@@ -0,0 +1,103 @@
+package com.mbajdowski.video;
+
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.WindowConstants;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Shows the latest frame in a window. Frames are copied into a back buffer and painted on the
+ * event dispatch thread, frames written faster than they are painted are coalesced into one repaint.
+ * Closing the window runs the close listener, so the producer can stop.
+ */
+public class PreviewWindow implements IFrameSink {
+
+    private final String title;
+    private volatile Runnable closeListener = () -> {
+    };
+    private JFrame window;
+    private FramePanel panel;
+
+    public PreviewWindow(String title) {
+        this.title = title;
+    }
+
+    public void setCloseListener(Runnable closeListener) {
+        this.closeListener = closeListener;
+    }
+
+    @Override
+    public void write(BufferedImage frame) throws IOException {
+        if (window == null) {
+            open(frame.getWidth(), frame.getHeight());
+        }
+        panel.update(frame);
+    }
+
+    @Override
+    public void close() {
+        if (window != null) {
+            SwingUtilities.invokeLater(window::dispose);
+        }
+    }
+
+    private void open(int width, int height) throws IOException {
+        panel = new FramePanel(width, height);
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                window = new JFrame(title);
+                window.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+                window.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosing(WindowEvent e) {
+                        closeListener.run();
+                    }
+                });
+                window.add(panel);
+                window.pack();
+                window.setVisible(true);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while opening preview window", e);
+        } catch (InvocationTargetException e) {
+            throw new IOException("Could not open preview window", e.getCause());
+        }
+    }
+
+    private static class FramePanel extends JPanel {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BufferedImage backBuffer;
+
+        FramePanel(int width, int height) {
+            this.backBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            setPreferredSize(new Dimension(width, height));
+        }
+
+        void update(BufferedImage frame) {
+            synchronized (backBuffer) {
+                Graphics g = backBuffer.getGraphics();
+                g.drawImage(frame, 0, 0, null);
+                g.dispose();
+            }
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            synchronized (backBuffer) {
+                g.drawImage(backBuffer, 0, 0, getWidth(), getHeight(), null);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.mbajdowski.video;
+
+import org.jcodec.common.model.Picture;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes frames as raw video with no header, ready to be piped into a local encoder like ffmpeg.
+ * RGB24 frames are packed 3 bytes per pixel ({@code -f rawvideo -pix_fmt rgb24 -s WxH}), YUV420 frames are
+ * full range planar Y, U and V planes ({@code -pix_fmt yuvj420p}) converted with {@link YuvConverter}.
+ * Every frame is flushed, so readers get it as soon as it is drawn.
+ */
+public class RawFrameWriter implements IFrameSink {
+
+    public enum PixelFormat {
+        RGB24,
+        YUV420
+    }
+
+    private final OutputStream out;
+    private final PixelFormat pixelFormat;
+    private byte[] rowBuffer;
+    private Picture yuvPicture;
+
+    public RawFrameWriter(OutputStream out) {
+        this(out, PixelFormat.RGB24);
+    }
+
+    public RawFrameWriter(OutputStream out, PixelFormat pixelFormat) {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.pixelFormat = pixelFormat;
+    }
+
+    @Override
+    public void write(BufferedImage frame) throws IOException {
+        if (pixelFormat == PixelFormat.YUV420) {
+            writeYuv(frame);
+        } else {
+            writeRgb(frame);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeRgb(BufferedImage frame) throws IOException {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int[] pixels;
+        if (frame.getType() == BufferedImage.TYPE_INT_RGB) {
+            pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        } else {
+            pixels = frame.getRGB(0, 0, width, height, null, 0, width);
+        }
+
+        ensureRowBuffer(width * 3);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0, i = y * width, p = 0; x < width; x++, i++) {
+                int rgb = pixels[i];
+                rowBuffer[p++] = (byte) (rgb >> 16);
+                rowBuffer[p++] = (byte) (rgb >> 8);
+                rowBuffer[p++] = (byte) rgb;
+            }
+            out.write(rowBuffer, 0, width * 3);
+        }
+    }
+
+    private void writeYuv(BufferedImage frame) throws IOException {
+        if (yuvPicture == null
+                || yuvPicture.getWidth() != frame.getWidth()
+                || yuvPicture.getHeight() != frame.getHeight()) {
+            yuvPicture = YuvConverter.createPicture(frame.getWidth(), frame.getHeight());
+        }
+        YuvConverter.fromBufferedImage(frame, yuvPicture);
+
+        for (int plane = 0; plane < 3; plane++) {
+            byte[] data = yuvPicture.getPlaneData(plane);
+            int width = yuvPicture.getPlaneWidth(plane);
+            ensureRowBuffer(width);
+            for (int y = 0, i = 0; y < yuvPicture.getPlaneHeight(plane); y++) {
+                //Picture keeps values shifted by -128
+                for (int x = 0; x < width; x++, i++) {
+                    rowBuffer[x] = (byte) (data[i] + 128);
+                }
+                out.write(rowBuffer, 0, width);
+            }
+        }
+    }
+
+    private void ensureRowBuffer(int length) {
+        if (rowBuffer == null || rowBuffer.length < length) {
+            rowBuffer = new byte[length];
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.mbajdowski.video;
+
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Converts RGB frames straight into YUV420J pictures, reading the int pixels of the raster
+ * instead of going through an intermediate RGB picture. Uses the same integer coefficients
+ * as jcodec RgbToYuv420j, so encoded output is identical.
+ */
+public class YuvConverter {
+
+    public static Picture createPicture(int width, int height) {
+        return Picture.create(width, height, ColorSpace.YUV420J);
+    }
+
+    public static void fromBufferedImage(BufferedImage img, Picture yuv) {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        if (yuv.getColor() != ColorSpace.YUV420J || yuv.getWidth() != width || yuv.getHeight() != height) {
+            throw new IllegalArgumentException("Picture needs to be YUV420J of size " + width + "x" + height);
+        }
+
+        int[] pixels;
+        if (img.getType() == BufferedImage.TYPE_INT_RGB) {
+            pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        } else {
+            pixels = img.getRGB(0, 0, width, height, null, 0, width);
+        }
+
+        byte[] y = yuv.getPlaneData(0);
+        byte[] u = yuv.getPlaneData(1);
+        byte[] v = yuv.getPlaneData(2);
+        int chromaWidth = yuv.getPlaneWidth(1);
+
+        for (int row = 0; row < (height >> 1); row++) {
+            int top = 2 * row * width;
+            int bottom = top + width;
+            int chroma = row * chromaWidth;
+            for (int col = 0; col < (width >> 1); col++) {
+                int x = 2 * col;
+
+                //Luma of all four pixels of the block, chroma is averaged
+                int chromaSum = convertPixel(pixels, y, top + x)
+                        + convertPixel(pixels, y, top + x + 1)
+                        + convertPixel(pixels, y, bottom + x)
+                        + convertPixel(pixels, y, bottom + x + 1);
+                int sumU = (chromaSum >> 16) - 4 * 128;
+                int sumV = (chromaSum & 0xFFFF) - 4 * 128;
+
+                u[chroma + col] = (byte) ((sumU + 2) >> 2);
+                v[chroma + col] = (byte) ((sumV + 2) >> 2);
+            }
+        }
+    }
+
+    // writes luma of the pixel and returns its chroma packed as (u + 128) << 16 | (v + 128)
+    private static int convertPixel(int[] pixels, byte[] y, int index) {
+        int rgb = pixels[index];
+        int r = (rgb >> 16) & 255;
+        int g = (rgb >> 8) & 255;
+        int b = rgb & 255;
+        y[index] = (byte) clip(((77 * r + 150 * g + 15 * b + 128) >> 8) - 128);
+        int u = clip((-43 * r - 85 * g + 128 * b + 128) >> 8);
+        int v = clip((128 * r - 107 * g - 21 * b + 128) >> 8);
+        return ((u + 128) << 16) | (v + 128);
+    }
+
+    private static int clip(int value) {
+        return value < -128 ? -128 : (value > 127 ? 127 : value);
+    }
+}
@@ -0,0 +1,94 @@
+package com.mbajdowski;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRendererTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void listTracksShouldFindAudioFilesInSubdirectories() throws Exception {
+        Files.createDirectories(tempDir.resolve("album"));
+        Files.write(tempDir.resolve("album/b.WAV"), new byte[0]);
+        Files.write(tempDir.resolve("a.wav"), new byte[0]);
+        Files.write(tempDir.resolve("a.wav.video.mp4"), new byte[0]);
+
+        List<File> tracks = BatchRenderer.listTracks(tempDir.toFile());
+
+        assertEquals(Arrays.asList(tempDir.resolve("a.wav").toFile(), tempDir.resolve("album/b.WAV").toFile()), tracks);
+    }
+
+    @Test
+    void listTracksShouldReadManifestRelativeToItsDirectory() throws Exception {
+        Path manifest = tempDir.resolve("tracks.txt");
+        Files.write(manifest, Arrays.asList("# library", "album/a.wav", "", "/music/b.wav"));
+
+        List<File> tracks = BatchRenderer.listTracks(manifest.toFile());
+
+        assertEquals(Arrays.asList(tempDir.resolve("album/a.wav").toFile(), new File("/music/b.wav")), tracks);
+    }
+
+    @Test
+    void renderShouldRenderAllTracksAndReportFailures() throws Exception {
+        File first = writeWav("first.wav", 8000);
+        File second = writeWav("second.wav", 4000);
+        File broken = Files.write(tempDir.resolve("broken.wav"), new byte[]{1, 2, 3}).toFile();
+
+        BatchRenderer batchRenderer = new BatchRenderer(Arrays.asList(first, second, broken),
+                file -> new FreqVisualiser(file, 8, 10), 2, 2);
+        BatchRenderer.Summary summary = batchRenderer.render();
+
+        assertEquals(2, summary.getRendered());
+        assertEquals(1, summary.getFailed().size());
+        assertTrue(summary.getFailed().containsKey(broken));
+        assertEquals(1.5, summary.getAudioSeconds(), 0.01);
+        assertTrue(new File(first.getPath() + ".video.mp4").length() > 0);
+        assertTrue(new File(second.getPath() + ".video.mp4").length() > 0);
+    }
+
+    @Test
+    void renderShouldCountTracksFailingWithError() throws Exception {
+        File first = writeWav("first.wav", 8000);
+        File failing = writeWav("failing.wav", 8000);
+
+        BatchRenderer batchRenderer = new BatchRenderer(Arrays.asList(first, failing), file -> {
+            if (file.equals(failing)) {
+                throw new AssertionError("Visualiser of " + file);
+            }
+            return new FreqVisualiser(file, 8, 10);
+        }, 1, 1);
+        BatchRenderer.Summary summary = batchRenderer.render();
+
+        assertEquals(1, summary.getRendered());
+        assertTrue(summary.getFailed().get(failing) instanceof AssertionError);
+    }
+
+    private File writeWav(String name, int noOfSamples) throws Exception {
+        AudioFormat format = new AudioFormat(8000, 16, 1, true, false);
+        byte[] data = new byte[noOfSamples * 2];
+        for (int i = 0; i < noOfSamples; i++) {
+            short sample = (short) (Math.sin(i * 0.3) * 10000);
+            data[2 * i] = (byte) sample;
+            data[2 * i + 1] = (byte) (sample >> 8);
+        }
+        File file = tempDir.resolve(name).toFile();
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(data), format, noOfSamples),
+                AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mbajdowski;
+
+import com.mbajdowski.drawer.ColumnDrawer;
+import com.mbajdowski.sound.MusicFileManager;
+import com.mbajdowski.video.RawFrameWriter;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveVisualiserTest {
+
+    @Test
+    void runShouldDrawOrDropEveryFrameOfTheStream() throws Exception {
+        //Half a second of 8 kHz 16-bit stereo without a known length, like stdin
+        byte[] pcm = new byte[4000 * 4];
+        for (int i = 0; i < 4000; i++) {
+            short sample = (short) (10000 * Math.sin(2 * Math.PI * 440 * i / 8000));
+            pcm[4 * i] = (byte) sample;
+            pcm[4 * i + 1] = (byte) (sample >> 8);
+        }
+        AudioFormat format = new AudioFormat(8000, 16, 2, true, false);
+        AudioInputStream ais = new AudioInputStream(new ByteArrayInputStream(pcm), format, AudioSystem.NOT_SPECIFIED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Properties properties = new Properties();
+        properties.setProperty("IMG_WIDTH", "64");
+        properties.setProperty("IMG_HEIGHT", "36");
+
+        LiveVisualiser liveVisualiser = new LiveVisualiser(new MusicFileManager(ais), 20, 10,
+                new ColumnDrawer(properties), new RawFrameWriter(out));
+        liveVisualiser.setLatencyBudget(60_000);
+        liveVisualiser.run();
+
+        assertEquals(10, liveVisualiser.getDrawnFrames() + liveVisualiser.getDroppedFrames());
+        assertTrue(liveVisualiser.getDrawnFrames() > 0);
+        assertEquals(liveVisualiser.getDrawnFrames() * 64 * 36 * 3, out.size());
+    }
+}
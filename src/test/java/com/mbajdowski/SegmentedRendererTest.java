@@ -0,0 +1,168 @@
+package com.mbajdowski;
+
+import com.mbajdowski.drawer.FrameDrawerAdapter;
+import com.mbajdowski.drawer.FramePool;
+import com.mbajdowski.drawer.ISpectrumHistory;
+import com.mbajdowski.drawer.LineDrawer;
+import com.mbajdowski.drawer.OrderCheckingDrawer;
+import com.mbajdowski.drawer.SpectrumHistoryBuffer;
+import com.mbajdowski.utils.SpectrumStore;
+import com.mbajdowski.video.PictureSequenceEncoder;
+import org.jcodec.common.DemuxerTrack;
+import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.io.SeekableByteChannel;
+import org.jcodec.common.model.Packet;
+import org.jcodec.containers.mp4.demuxer.MP4Demuxer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedRendererTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void splitFramesShouldStartSegmentsAtKeyFrames() {
+        assertArrayEquals(new int[]{0, 50, 100}, SegmentedRenderer.splitFrames(100, 2));
+        assertArrayEquals(new int[]{0, 25, 50, 60}, SegmentedRenderer.splitFrames(60, 4));
+        assertArrayEquals(new int[]{0, 10}, SegmentedRenderer.splitFrames(10, 4));
+        assertArrayEquals(new int[]{0, 0}, SegmentedRenderer.splitFrames(0, 4));
+    }
+
+    @Test
+    void renderShouldEncodeSameFramesAsSequentialRendering() throws Exception {
+        Random random = new Random(7);
+        int[][] spectra = new int[60][];
+        SpectrumStore spectrumStore = SpectrumStore.allocate(60, 10);
+        SpectrumStore extremaStore = SpectrumStore.allocate(60, 2);
+        int[] extrema = {0, 1000};
+        for (int i = 0; i < spectra.length; i++) {
+            spectra[i] = random.ints(10, 0, 1000).toArray();
+            spectrumStore.set(i, spectra[i]);
+            extremaStore.set(i, extrema);
+        }
+        Properties properties = new Properties();
+        properties.setProperty("IMG_WIDTH", "64");
+        properties.setProperty("IMG_HEIGHT", "32");
+
+        File sequential = tempDir.resolve("sequential.mp4").toFile();
+        LineDrawer drawer = new LineDrawer(properties);
+        SpectrumHistoryBuffer historyBuffer = new SpectrumHistoryBuffer(drawer.getHistoryLength());
+        try (PictureSequenceEncoder encoder = PictureSequenceEncoder.createSequenceEncoder(sequential, 10)) {
+            for (int i = 0; i < spectra.length; i++) {
+                encoder.write(drawer.drawFrame(i, historyBuffer.add(spectra[i]), extrema, new FramePool(1)));
+            }
+        }
+        File segmented = tempDir.resolve("segmented.mp4").toFile();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            new SegmentedRenderer(() -> new LineDrawer(properties), 1, 10)
+                    .render(spectrumStore, extremaStore, 3, segmented, executor, (framesDone, framesInTotal) -> {
+                    });
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Packet> expected = readPackets(sequential);
+        List<Packet> actual = readPackets(segmented);
+        assertEquals(spectra.length, actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getData(), actual.get(i).getData(), "Frame " + i);
+            assertEquals(expected.get(i).getPts(), actual.get(i).getPts());
+        }
+        assertEquals(2, tempDir.toFile().list().length);
+    }
+
+    @Test
+    void renderShouldWarmUpAdaptedDrawerWithAllPrecedingFrames() throws Exception {
+        SpectrumStore spectrumStore = SpectrumStore.allocate(60, 1);
+        SpectrumStore extremaStore = SpectrumStore.allocate(60, 2);
+        int[] extrema = {0, 1000};
+        for (int i = 0; i < 60; i++) {
+            spectrumStore.set(i, new int[]{i});
+            extremaStore.set(i, extrema);
+        }
+
+        File sequential = tempDir.resolve("sequential.mp4").toFile();
+        OrderCheckingDrawer drawer = new OrderCheckingDrawer();
+        try (PictureSequenceEncoder encoder = PictureSequenceEncoder.createSequenceEncoder(sequential, 10)) {
+            for (int i = 0; i < 60; i++) {
+                encoder.write(drawer.drawFFT(new int[]{i}, extrema));
+            }
+        }
+        File segmented = tempDir.resolve("segmented.mp4").toFile();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            //Drawers of later segments fail unless they first draw every preceding frame
+            new SegmentedRenderer(() -> new FrameDrawerAdapter(new OrderCheckingDrawer()), 1, 10)
+                    .render(spectrumStore, extremaStore, 3, segmented, executor, (framesDone, framesInTotal) -> {
+                    });
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Packet> expected = readPackets(sequential);
+        List<Packet> actual = readPackets(segmented);
+        assertEquals(60, actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getData(), actual.get(i).getData(), "Frame " + i);
+        }
+    }
+
+    @Test
+    void renderShouldDeleteSegmentFilesWhenSegmentFails() throws Exception {
+        SpectrumStore spectrumStore = SpectrumStore.allocate(200, 10);
+        SpectrumStore extremaStore = SpectrumStore.allocate(200, 2);
+        for (int i = 0; i < 200; i++) {
+            extremaStore.set(i, new int[]{0, 1000});
+        }
+        Properties properties = new Properties();
+        properties.setProperty("IMG_WIDTH", "64");
+        properties.setProperty("IMG_HEIGHT", "32");
+        File output = tempDir.resolve("failed.mp4").toFile();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            SegmentedRenderer renderer = new SegmentedRenderer(() -> new LineDrawer(properties) {
+                @Override
+                public BufferedImage drawFrame(int frame, ISpectrumHistory history, int[] extrema,
+                                               FramePool framePool) {
+                    if (frame == 30) {
+                        throw new IllegalStateException("Frame " + frame);
+                    }
+                    return super.drawFrame(frame, history, extrema, framePool);
+                }
+            }, 1, 10);
+            assertThrows(IllegalStateException.class, () -> renderer.render(spectrumStore, extremaStore, 4, output,
+                    executor, (framesDone, framesInTotal) -> {
+                    }));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(0, tempDir.toFile().list().length);
+    }
+
+    private static List<Packet> readPackets(File file) throws Exception {
+        List<Packet> packets = new ArrayList<>();
+        try (SeekableByteChannel in = NIOUtils.readableChannel(file)) {
+            DemuxerTrack track = MP4Demuxer.createMP4Demuxer(in).getVideoTrack();
+            Packet packet;
+            while ((packet = track.nextFrame()) != null) {
+                packets.add(packet);
+            }
+        }
+        return packets;
+    }
+}
@@ -0,0 +1,23 @@
+package com.mbajdowski.drawer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelLayoutTest {
+
+    @Test
+    void mergeShouldTakeHighestValueOfEveryBucket() {
+        int[] fftData = {1, 5, 3, 4, 2, 6, 0, 0, 7};
+
+        assertArrayEquals(new int[]{4, 5, 7}, ChannelLayout.merge(fftData, 3));
+    }
+
+    @Test
+    void mirrorShouldReverseFirstChannelOfStereoSpectra() {
+        int[] mono = {1, 2, 3};
+
+        assertSame(mono, ChannelLayout.mirror(mono, 1));
+        assertArrayEquals(new int[]{3, 2, 1, 4, 5, 6}, ChannelLayout.mirror(new int[]{1, 2, 3, 4, 5, 6}, 2));
+    }
+}
@@ -0,0 +1,46 @@
+package com.mbajdowski.drawer;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FramePoolTest {
+
+    @Test
+    void acquireShouldReuseReleasedFrameAndClearIt() {
+        FramePool framePool = new FramePool(2);
+        BufferedImage frame = framePool.acquire(4, 3);
+        frame.setRGB(1, 1, 0xFFFFFF);
+
+        framePool.release(frame);
+        BufferedImage reused = framePool.acquire(4, 3);
+
+        assertSame(frame, reused);
+        assertEquals(0, reused.getRGB(1, 1) & 0xFFFFFF);
+    }
+
+    @Test
+    void acquireShouldAllocateFrameIfSizeDiffers() {
+        FramePool framePool = new FramePool(2);
+        BufferedImage frame = framePool.acquire(4, 3);
+        framePool.release(frame);
+
+        BufferedImage other = framePool.acquire(8, 6);
+
+        assertNotSame(frame, other);
+        assertEquals(8, other.getWidth());
+        assertEquals(6, other.getHeight());
+    }
+
+    @Test
+    void releaseShouldNotKeepMoreFramesThanCapacity() {
+        FramePool framePool = new FramePool(1);
+
+        framePool.release(framePool.acquire(4, 3));
+        framePool.release(new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB));
+
+        assertEquals(1, framePool.size());
+    }
+}
@@ -0,0 +1,43 @@
+package com.mbajdowski.drawer;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Grid3dDrawerTest {
+
+    @Test
+    void drawFrameShouldNotDependOnOrderOfFrames() {
+        Random random = new Random(3);
+        int[][] spectra = new int[20][];
+        for (int i = 0; i < spectra.length; i++) {
+            spectra[i] = random.ints(8, 0, 100).toArray();
+        }
+        int[] extrema = {0, 100};
+        Properties properties = new Properties();
+        properties.setProperty("IMG_WIDTH", "64");
+        properties.setProperty("IMG_HEIGHT", "32");
+        properties.setProperty("DEPTH_VALUE", "4");
+        Grid3dDrawer drawer = new Grid3dDrawer(properties);
+
+        //Drawn in order with only the last frames kept, then backwards with all spectra available
+        SpectrumHistoryBuffer historyBuffer = new SpectrumHistoryBuffer(drawer.getHistoryLength());
+        int[][] inOrder = new int[spectra.length][];
+        for (int i = 0; i < spectra.length; i++) {
+            inOrder[i] = pixels(drawer.drawFrame(i, historyBuffer.add(spectra[i]), extrema, new FramePool(1)));
+        }
+        ISpectrumHistory history = new SpectrumHistory(spectra, 0);
+        for (int i = spectra.length - 1; i >= 0; i--) {
+            assertArrayEquals(inOrder[i], pixels(drawer.drawFrame(i, history, extrema, new FramePool(1))), "Frame " + i);
+        }
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,50 @@
+package com.mbajdowski.drawer;
+
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Drawer keeping history between frames, which fails unless it gets every frame from the first one in order.
+ * The first value of the spectrum of every frame is its index.
+ */
+public class OrderCheckingDrawer implements IFrameDrawer {
+
+    private int nextFrame = 0;
+
+    @Override
+    public BufferedImage drawFFT(int[] fftData, int[] extrema) {
+        return drawFFT(fftData, extrema, new FramePool(1));
+    }
+
+    @Override
+    public BufferedImage drawFFT(int[] fftData, int[] extrema, FramePool framePool) {
+        if (fftData[0] != nextFrame) {
+            throw new IllegalStateException("Expected frame " + nextFrame + " but got " + fftData[0]);
+        }
+        nextFrame++;
+        BufferedImage image = framePool.acquire(16, 16);
+        //Brightness depends on the history, so frames drawn in a different state differ
+        image.setRGB(0, 0, nextFrame * 0x010101);
+        return image;
+    }
+
+    public int getNextFrame() {
+        return nextFrame;
+    }
+
+    @Override
+    public Map<String, String> getOptions() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Properties getProperties() {
+        return new Properties();
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+}
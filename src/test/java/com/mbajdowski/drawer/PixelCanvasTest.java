@@ -0,0 +1,164 @@
+package com.mbajdowski.drawer;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PixelCanvasTest {
+
+    private static final int WIDTH = 96;
+    private static final int HEIGHT = 64;
+
+    @Test
+    void randomShapesShouldMatchJava2d() {
+        Random random = new Random(5);
+        for (int i = 0; i < 300; i++) {
+            long seed = random.nextLong();
+            assertArrayEquals(draw(CanvasType.JAVA2D, seed), draw(CanvasType.SOFTWARE, seed), "Seed " + seed);
+        }
+    }
+
+    @Test
+    void drawersShouldDrawSamePixelsWithSoftwareRenderer() {
+        Random random = new Random(7);
+        int[][] spectra = new int[12][];
+        for (int i = 0; i < spectra.length; i++) {
+            spectra[i] = random.ints(16, 0, 100).toArray();
+        }
+        ISpectrumHistory history = new SpectrumHistory(spectra, 0);
+        int[] extrema = {0, 100};
+        List<Function<Properties, IStatelessFrameDrawer>> drawers =
+                Arrays.asList(ColumnDrawer::new, LineDrawer::new, Grid3dDrawer::new);
+
+        for (Function<Properties, IStatelessFrameDrawer> drawer : drawers) {
+            Properties properties = new Properties();
+            properties.setProperty("IMG_WIDTH", String.valueOf(WIDTH * 4));
+            properties.setProperty("IMG_HEIGHT", String.valueOf(HEIGHT * 4));
+            IStatelessFrameDrawer java2d = drawer.apply(properties);
+            properties.setProperty("RENDERER", CanvasType.SOFTWARE.name());
+            IStatelessFrameDrawer software = drawer.apply(properties);
+            for (int frame = 0; frame < spectra.length; frame++) {
+                assertArrayEquals(pixels(java2d.drawFrame(frame, history, extrema, new FramePool(1))),
+                        pixels(software.drawFrame(frame, history, extrema, new FramePool(1))),
+                        java2d.getClass().getSimpleName() + " frame " + frame);
+            }
+        }
+    }
+
+    @Test
+    void constructorShouldRejectOtherImageTypes() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        assertThrows(IllegalArgumentException.class, () -> new PixelCanvas(image));
+    }
+
+    @Test
+    void forFrameShouldReuseCanvasOfThreadOnceDisposed() {
+        BufferedImage first = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BufferedImage second = new BufferedImage(WIDTH / 2, HEIGHT / 2, BufferedImage.TYPE_INT_RGB);
+        PixelCanvas canvas = PixelCanvas.forFrame(first);
+        PixelCanvas nested = PixelCanvas.forFrame(second);
+        assertNotSame(canvas, nested);
+        nested.dispose();
+        canvas.setColor(Color.RED);
+        canvas.dispose();
+
+        PixelCanvas reused = PixelCanvas.forFrame(second);
+        assertSame(canvas, reused);
+        reused.fillRect(0, 0, WIDTH, HEIGHT);
+        reused.dispose();
+        assertTrue(Arrays.stream(pixels(second)).allMatch(rgb -> rgb == Color.WHITE.getRGB()));
+        assertTrue(Arrays.stream(pixels(first)).allMatch(rgb -> rgb == 0));
+    }
+
+    @Test
+    void drawerShouldDisposeCanvasWhenDrawingFails() {
+        Properties properties = new Properties();
+        properties.setProperty("IMG_WIDTH", String.valueOf(WIDTH));
+        properties.setProperty("IMG_HEIGHT", String.valueOf(HEIGHT));
+        properties.setProperty("RENDERER", CanvasType.SOFTWARE.name());
+        ISpectrumHistory failingHistory = new ISpectrumHistory() {
+            @Override
+            public int getFirstFrame() {
+                return 0;
+            }
+
+            @Override
+            public int getEndFrame() {
+                return 1;
+            }
+
+            @Override
+            public int[] get(int frame) {
+                throw new IllegalStateException("Frame " + frame);
+            }
+        };
+        assertThrows(IllegalStateException.class,
+                () -> new LineDrawer(properties).drawFrame(0, failingHistory, new int[]{0, 100}, new FramePool(1)));
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        PixelCanvas canvas = PixelCanvas.forFrame(image);
+        canvas.dispose();
+        assertSame(canvas, PixelCanvas.forFrame(image));
+        canvas.dispose();
+    }
+
+    /**
+     * Draws shapes of all kinds, partly out of the image, chosen by the seed.
+     */
+    private static int[] draw(CanvasType canvasType, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        ICanvas canvas = canvasType.createCanvas(image);
+        List<Consumer<ICanvas>> shapes = Arrays.asList(
+                c -> c.fillRect(x(random), y(random), random.nextInt(WIDTH / 2), random.nextInt(HEIGHT / 2)),
+                c -> c.drawLine(x(random), y(random), x(random), y(random)),
+                c -> {
+                    int[][] points = points(random, 1 + random.nextInt(8));
+                    c.drawPolyline(points[0], points[1], points[0].length);
+                },
+                c -> {
+                    int[][] points = points(random, 3 + random.nextInt(8));
+                    c.fillPolygon(points[0], points[1], points[0].length);
+                });
+        for (int i = 0; i < 8; i++) {
+            canvas.setColor(new Color(random.nextInt(0x1000000)));
+            canvas.setStrokeWidth(random.nextInt(6));
+            shapes.get(random.nextInt(shapes.size())).accept(canvas);
+        }
+        canvas.dispose();
+        return pixels(image);
+    }
+
+    private static int x(Random random) {
+        return random.nextInt(WIDTH + 20) - 10;
+    }
+
+    private static int y(Random random) {
+        return random.nextInt(HEIGHT + 20) - 10;
+    }
+
+    private static int[][] points(Random random, int nPoints) {
+        int[][] points = new int[2][nPoints];
+        for (int i = 0; i < nPoints; i++) {
+            //Repeated points are part of polylines of the drawers
+            boolean repeated = i > 0 && random.nextInt(8) == 0;
+            points[0][i] = repeated ? points[0][i - 1] : x(random);
+            points[1][i] = repeated ? points[1][i - 1] : y(random);
+        }
+        return points;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
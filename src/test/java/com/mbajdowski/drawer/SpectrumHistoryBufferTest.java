@@ -0,0 +1,39 @@
+package com.mbajdowski.drawer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectrumHistoryBufferTest {
+
+    @Test
+    void addShouldReturnAddedFrameWithPrecedingOnes() {
+        SpectrumHistoryBuffer historyBuffer = new SpectrumHistoryBuffer(2);
+
+        ISpectrumHistory first = historyBuffer.add(new int[]{0});
+        historyBuffer.add(new int[]{1});
+        historyBuffer.add(new int[]{2});
+        ISpectrumHistory fourth = historyBuffer.add(new int[]{3});
+
+        assertEquals(0, first.getFirstFrame());
+        assertEquals(1, first.getEndFrame());
+        assertEquals(1, fourth.getFirstFrame());
+        assertEquals(4, fourth.getEndFrame());
+        assertArrayEquals(new int[]{1}, fourth.get(1));
+        assertArrayEquals(new int[]{3}, fourth.get(3));
+    }
+
+    @Test
+    void historyShouldStayValidWhenLaterFramesAreAdded() {
+        SpectrumHistoryBuffer historyBuffer = new SpectrumHistoryBuffer(1);
+        historyBuffer.add(new int[]{0});
+        ISpectrumHistory second = historyBuffer.add(new int[]{1});
+
+        historyBuffer.add(new int[]{2});
+        historyBuffer.add(new int[]{3});
+
+        assertArrayEquals(new int[]{0}, second.get(0));
+        assertArrayEquals(new int[]{1}, second.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> second.get(2));
+    }
+}
@@ -0,0 +1,35 @@
+package com.mbajdowski.fft;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FFTPlanTest {
+
+    @Test
+    void forSizeShouldReturnCachedPlan() {
+        FFTPlan plan = FFTPlan.forSize(1024);
+
+        assertSame(plan, FFTPlan.forSize(1024));
+        assertEquals(1024, plan.getSize());
+    }
+
+    @Test
+    void fftShouldTransformImpulseToFlatSpectrum() {
+        double[] re = new double[8];
+        double[] im = new double[8];
+        re[0] = 1;
+
+        FFTPlan.forSize(8).fft(re, im);
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(1, re[i], 1e-9);
+            assertEquals(0, im[i], 1e-9);
+        }
+    }
+
+    @Test
+    void fftShouldThrowExceptionIfArrayDoesNotMatchPlanSize() {
+        assertThrows(IllegalArgumentException.class, () -> FFTPlan.forSize(8).fft(new double[4], new double[4]));
+    }
+}
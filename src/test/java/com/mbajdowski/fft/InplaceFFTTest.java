@@ -0,0 +1,44 @@
+package com.mbajdowski.fft;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InplaceFFTTest {
+
+    private static final double DELTA = 1e-6;
+
+    @Test
+    void primitiveFftShouldMatchComplexFft() {
+        int n = 256;
+        Random random = new Random(42);
+        Complex[] complex = new Complex[n];
+        double[] re = new double[n];
+        double[] im = new double[n];
+        for (int i = 0; i < n; i++) {
+            re[i] = random.nextInt(65536) - 32768;
+            im[i] = random.nextInt(65536) - 32768;
+            complex[i] = new Complex(re[i], im[i]);
+        }
+
+        Complex[] expected = InplaceFFT.fft(complex);
+        InplaceFFT.fft(re, im);
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(expected[i].re(), re[i], DELTA);
+            assertEquals(expected[i].im(), im[i], DELTA);
+        }
+    }
+
+    @Test
+    void primitiveFftShouldThrowExceptionIfLengthIsNotPowerOfTwo() {
+        assertThrows(RuntimeException.class, () -> InplaceFFT.fft(new double[3], new double[3]));
+    }
+
+    @Test
+    void primitiveFftShouldThrowExceptionIfLengthsDiffer() {
+        assertThrows(IllegalArgumentException.class, () -> InplaceFFT.fft(new double[4], new double[8]));
+    }
+}
@@ -0,0 +1,42 @@
+package com.mbajdowski.fft;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RealFFTTest {
+
+    private static final double DELTA = 1e-6;
+
+    @Test
+    void realFftShouldMatchFirstHalfOfComplexFft() {
+        for (int n = 2; n <= 1024; n *= 2) {
+            Random random = new Random(n);
+            double[] x = new double[n];
+            double[] expectedRe = new double[n];
+            double[] expectedIm = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = random.nextInt(65536) - 32768;
+                expectedRe[i] = x[i];
+            }
+            InplaceFFT.fft(expectedRe, expectedIm);
+
+            double[] re = new double[n / 2];
+            double[] im = new double[n / 2];
+            RealFFT.forSize(n).fft(x, re, im);
+
+            for (int i = 0; i < n / 2; i++) {
+                assertEquals(expectedRe[i], re[i], DELTA);
+                assertEquals(expectedIm[i], im[i], DELTA);
+            }
+        }
+    }
+
+    @Test
+    void realFftShouldThrowExceptionIfOutputHasWrongLength() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RealFFT.forSize(8).fft(new double[8], new double[8], new double[8]));
+    }
+}
@@ -0,0 +1,43 @@
+package com.mbajdowski.fft;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingDFTTest {
+
+    @Test
+    void slidingDftShouldMatchFftOfLastWindow() {
+        int n = 256;
+        int[] bins = {1, 7, 64, 127};
+        Random random = new Random(n);
+        double[] x = new double[n * 5 + 37];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextInt(65536) - 32768;
+        }
+
+        SlidingDFT slidingDFT = new SlidingDFT(n, bins);
+        slidingDFT.update(x, 0, 100);
+        slidingDFT.update(x, 100, x.length - 100);
+        int[] magnitudes = new int[bins.length];
+        slidingDFT.getMagnitudes(magnitudes);
+
+        double[] window = new double[n];
+        System.arraycopy(x, x.length - n, window, 0, n);
+        double[] re = new double[n / 2];
+        double[] im = new double[n / 2];
+        RealFFT.forSize(n).fft(window, re, im);
+
+        for (int b = 0; b < bins.length; b++) {
+            double expected = Math.sqrt(re[bins[b]] * re[bins[b]] + im[bins[b]] * im[bins[b]]);
+            assertEquals(expected, magnitudes[b], 1.0);
+        }
+    }
+
+    @Test
+    void constructorShouldThrowExceptionForBinOutsideWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingDFT(16, new int[]{16}));
+    }
+}
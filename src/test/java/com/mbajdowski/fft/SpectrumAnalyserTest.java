@@ -0,0 +1,149 @@
+package com.mbajdowski.fft;
+
+import com.mbajdowski.sound.ChannelMode;
+import com.mbajdowski.sound.IAudioSource;
+import com.mbajdowski.utils.MathHelper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectrumAnalyserTest {
+
+    private static final int[] FREQ_BUCKETS = MathHelper.generateFreqBuckets(8);
+
+    @Test
+    void readShouldConcatenateSpectraOfAllChannels() throws Exception {
+        double[][] channels = {sine(440), sine(2000)};
+
+        int[][] all = readAll(channels, ChannelMode.ALL, AnalysisMode.FFT);
+        int[][] first = readAll(channels, ChannelMode.FIRST, AnalysisMode.FFT);
+        int[][] second = readAll(new double[][]{channels[1]}, ChannelMode.FIRST, AnalysisMode.FFT);
+
+        for (int i = 0; i < all.length; i++) {
+            assertEquals(2 * FREQ_BUCKETS.length, all[i].length);
+            for (int j = 0; j < FREQ_BUCKETS.length; j++) {
+                assertEquals(first[i][j], all[i][j]);
+                assertEquals(second[i][j], all[i][FREQ_BUCKETS.length + j]);
+            }
+        }
+    }
+
+    @Test
+    void readShouldAnalyseMidAndSide() throws Exception {
+        double[] signal = sine(440);
+
+        for (AnalysisMode analysisMode : AnalysisMode.values()) {
+            int[][] spectra = readAll(new double[][]{signal, signal}, ChannelMode.MID_SIDE, analysisMode);
+            int[][] mono = readAll(new double[][]{signal}, ChannelMode.FIRST, analysisMode);
+
+            for (int i = 0; i < spectra.length; i++) {
+                for (int j = 0; j < FREQ_BUCKETS.length; j++) {
+                    assertEquals(mono[i][j], spectra[i][j]);
+                    assertEquals(0, spectra[i][FREQ_BUCKETS.length + j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void constructorShouldThrowExceptionForMidSideOfMonoSource() {
+        assertThrows(IllegalArgumentException.class, () -> new SpectrumAnalyser(new ArrayAudioSource(new double[][]{
+                new double[16]}), 8, FREQ_BUCKETS, 0, AnalysisMode.FFT, ChannelMode.MID_SIDE, null, 1));
+    }
+
+    @Test
+    void readShouldAnalyseUnboundedSourceUntilItsEnd() throws Exception {
+        double[][] channels = {sine(440)};
+
+        for (AnalysisMode analysisMode : AnalysisMode.values()) {
+            int[][] bounded = readAll(new ArrayAudioSource(channels, false), ChannelMode.FIRST, analysisMode);
+            int[][] unbounded = readAll(new ArrayAudioSource(channels, true), ChannelMode.FIRST, analysisMode);
+
+            assertEquals(bounded.length, unbounded.length);
+            for (int i = 0; i < bounded.length; i++) {
+                assertArrayEquals(bounded[i], unbounded[i]);
+            }
+        }
+    }
+
+    private static int[][] readAll(double[][] channels, ChannelMode channelMode, AnalysisMode analysisMode)
+            throws Exception {
+        return readAll(new ArrayAudioSource(channels, false), channelMode, analysisMode);
+    }
+
+    private static int[][] readAll(IAudioSource source, ChannelMode channelMode, AnalysisMode analysisMode)
+            throws Exception {
+        try (SpectrumAnalyser analyser = new SpectrumAnalyser(source, 25, FREQ_BUCKETS, 1024, analysisMode,
+                channelMode, null, 1)) {
+            List<int[]> spectra = new ArrayList<>();
+            int[][] batch = new int[7][];
+            int count;
+            while ((count = analyser.read(batch, 7)) > 0) {
+                spectra.addAll(Arrays.asList(batch).subList(0, count));
+            }
+            return spectra.toArray(new int[0][]);
+        }
+    }
+
+    private static double[] sine(double freq) {
+        double[] samples = new double[8000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = 10000 * Math.sin(2 * Math.PI * freq * i / 8000);
+        }
+        return samples;
+    }
+
+    private static class ArrayAudioSource implements IAudioSource {
+
+        private final double[][] channels;
+        private final boolean unbounded;
+        private int position = 0;
+
+        ArrayAudioSource(double[][] channels) {
+            this(channels, false);
+        }
+
+        ArrayAudioSource(double[][] channels, boolean unbounded) {
+            this.channels = channels;
+            this.unbounded = unbounded;
+        }
+
+        @Override
+        public float getSampleRate() {
+            return 8000;
+        }
+
+        @Override
+        public int getChannels() {
+            return channels.length;
+        }
+
+        @Override
+        public long getSampleCount() {
+            return unbounded ? -1 : channels[0].length;
+        }
+
+        @Override
+        public int read(int channelIndex, double[] samples, int offset, int length) {
+            return read(new double[][]{samples}, offset, length);
+        }
+
+        @Override
+        public int read(double[][] samples, int offset, int length) {
+            int count = Math.min(length, channels[0].length - position);
+            for (int c = 0; c < samples.length; c++) {
+                System.arraycopy(channels[c], position, samples[c], offset, count);
+            }
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
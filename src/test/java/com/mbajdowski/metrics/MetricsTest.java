@@ -0,0 +1,63 @@
+package com.mbajdowski.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void disabledMetricsShouldRecordNothing() {
+        long start = Metrics.DISABLED.start();
+        Metrics.DISABLED.stop(Stage.FFT, start);
+
+        assertEquals(0, Metrics.DISABLED.getCount(Stage.FFT));
+    }
+
+    @Test
+    void percentilesShouldBoundMeasuredDurations() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        for (int i = 0; i < 3; i++) {
+            long start = metrics.start();
+            Thread.sleep(2);
+            metrics.stop(Stage.DRAWING, start);
+        }
+
+        assertEquals(3, metrics.getCount(Stage.DRAWING));
+        assertEquals(0, metrics.getCount(Stage.ENCODING));
+        long p50 = metrics.getPercentileNanos(Stage.DRAWING, 0.5);
+        assertTrue(p50 > 2_000_000, "p50 " + p50);
+        assertEquals(1, Long.bitCount(p50));
+        assertTrue(metrics.getStageTotalNanos().get("DRAWING") >= 6_000_000);
+    }
+
+    @Test
+    void jsonShouldListEveryStage() {
+        Metrics metrics = new Metrics();
+        metrics.stop(Stage.ENCODING, metrics.start());
+        metrics.finish();
+
+        String json = metrics.toJson();
+        for (Stage stage : Stage.values()) {
+            assertTrue(json.contains("\"" + stage.name() + "\": {\"count\": "), stage.name());
+        }
+        assertTrue(json.contains("\"frames\": 1,"));
+    }
+
+    @Test
+    void registeredMetricsShouldBeReadableInJmx() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.stop(Stage.ENCODING, metrics.start());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.mbajdowski:type=Metrics,name=" + ObjectName.quote("test.wav"));
+
+        metrics.register("test.wav");
+        assertEquals(1L, server.getAttribute(name, "Frames"));
+        metrics.unregister();
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,65 @@
+package com.mbajdowski.sound;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicFileManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void getChannelDataShouldReturnWholeSamplesOfOneChannel() throws Exception {
+        byte[] frames = {0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08};
+        File file = writeAiff(frames);
+
+        try (MusicFileManager mfm = new MusicFileManager(file)) {
+            assertArrayEquals(new byte[]{0x03, 0x04, 0x07, 0x08}, mfm.getChannelData(1));
+        }
+    }
+
+    @Test
+    void readShouldDecodeSamplesOfOneChannel() throws Exception {
+        byte[] frames = {0x00, 0x64, (byte) 0xFF, (byte) 0x9C, 0x05, (byte) 0xDC, (byte) 0xFA, 0x24};
+        File file = writeAiff(frames);
+        double[] samples = new double[3];
+
+        try (MusicFileManager mfm = new MusicFileManager(file)) {
+            assertEquals(2, mfm.getSampleCount());
+            assertEquals(2, mfm.read(1, samples, 1, 2));
+        }
+        assertArrayEquals(new double[]{0, -100, -1500}, samples);
+    }
+
+    @Test
+    void readOfOneChannelShouldConsumeFramesOfAllChannels() throws Exception {
+        byte[] frames = {0x00, 0x64, (byte) 0xFF, (byte) 0x9C, 0x05, (byte) 0xDC, (byte) 0xFA, 0x24};
+        File file = writeAiff(frames);
+        double[] samples = new double[2];
+
+        try (MusicFileManager mfm = new MusicFileManager(file)) {
+            assertEquals(1, mfm.read(0, samples, 0, 1));
+            assertEquals(1, mfm.read(1, samples, 1, 1));
+            assertEquals(0, mfm.read(0, samples, 0, 1));
+        }
+        assertArrayEquals(new double[]{100, -1500}, samples);
+    }
+
+    private File writeAiff(byte[] frames) throws Exception {
+        AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 8000, 16, 2, 4, 8000, true);
+        File file = tempDir.resolve("test.aiff").toFile();
+        AudioInputStream ais = new AudioInputStream(new ByteArrayInputStream(frames), format, frames.length / 4);
+        AudioSystem.write(ais, AudioFileFormat.Type.AIFF, file);
+        return file;
+    }
+}
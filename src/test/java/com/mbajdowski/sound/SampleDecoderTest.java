@@ -0,0 +1,93 @@
+package com.mbajdowski.sound;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+
+import static javax.sound.sampled.AudioFormat.Encoding.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleDecoderTest {
+
+    @Test
+    void decodeShouldDeinterleaveSixteenBitLittleEndianByFrame() {
+        SampleDecoder decoder = decoder(PCM_SIGNED, 16, 2, false);
+        byte[] data = {0x64, 0x00, (byte) 0x9C, (byte) 0xFF, (byte) 0xDC, 0x05, 0x24, (byte) 0xFA};
+
+        assertArrayEquals(new double[]{100, 1500}, decode(decoder, data, 2, 0));
+        assertArrayEquals(new double[]{-100, -1500}, decode(decoder, data, 2, 1));
+    }
+
+    @Test
+    void decodeShouldHandleUnsignedBigEndian() {
+        SampleDecoder decoder = decoder(PCM_UNSIGNED, 16, 1, true);
+        byte[] data = {(byte) 0x80, 0x00, 0x00, 0x00, (byte) 0xFF, (byte) 0xFF};
+
+        assertArrayEquals(new double[]{0, -32768, 32767}, decode(decoder, data, 3, 0));
+    }
+
+    @Test
+    void decodeShouldScaleEightBitSamples() {
+        byte[] data = {(byte) 0xFF, 0x00};
+
+        assertArrayEquals(new double[]{127 * 256, -32768}, decode(decoder(PCM_UNSIGNED, 8, 1, false), data, 2, 0));
+        assertArrayEquals(new double[]{-256, 0}, decode(decoder(PCM_SIGNED, 8, 1, false), data, 2, 0));
+    }
+
+    @Test
+    void decodeShouldScaleTwentyFourAndThirtyTwoBitSamples() {
+        byte[] pcm24 = {0x00, 0x01, 0x00, 0x00, 0x00, (byte) 0x80};
+        byte[] pcm32 = {0x00, 0x00, 0x01, 0x00};
+
+        assertArrayEquals(new double[]{1, -32768}, decode(decoder(PCM_SIGNED, 24, 1, false), pcm24, 2, 0));
+        assertArrayEquals(new double[]{1, -32768}, decode(decoder(PCM_SIGNED, 24, 1, true), reverse24(pcm24), 2, 0));
+        assertArrayEquals(new double[]{1}, decode(decoder(PCM_SIGNED, 32, 1, false), pcm32, 1, 0));
+    }
+
+    @Test
+    void decodeShouldScaleFloatSamples() {
+        byte[] float32 = ByteBuffer.allocate(4).putFloat(-0.5f).array();
+        byte[] float64 = ByteBuffer.allocate(8).putDouble(0.25).array();
+
+        assertArrayEquals(new double[]{-16384}, decode(decoder(PCM_FLOAT, 32, 1, true), float32, 1, 0));
+        assertArrayEquals(new double[]{8192}, decode(decoder(PCM_FLOAT, 64, 1, true), float64, 1, 0));
+    }
+
+    @Test
+    void decodeSampleShouldMatchDecode() {
+        SampleDecoder decoder = decoder(PCM_SIGNED, 24, 2, true);
+        byte[] data = {0x12, 0x34, 0x56, (byte) 0xFE, (byte) 0xDC, (byte) 0xBA};
+
+        double[] expected = decode(decoder, data, 1, 1);
+
+        assertEquals(expected[0], decoder.decodeSample(ByteBuffer.wrap(data), 3));
+    }
+
+    @Test
+    void constructorShouldThrowExceptionForUnsupportedEncoding() {
+        assertThrows(IllegalArgumentException.class, () -> decoder(ULAW, 8, 1, false));
+        assertThrows(IllegalArgumentException.class, () -> decoder(PCM_SIGNED, 12, 1, false));
+    }
+
+    private static SampleDecoder decoder(AudioFormat.Encoding encoding, int bits, int channels, boolean bigEndian) {
+        return new SampleDecoder(new AudioFormat(encoding, 44100, bits, channels,
+                bits / 8 * channels, 44100, bigEndian));
+    }
+
+    private static double[] decode(SampleDecoder decoder, byte[] data, int frames, int channel) {
+        double[] result = new double[frames];
+        decoder.decode(data, 0, frames, channel, result, 0);
+        return result;
+    }
+
+    private static byte[] reverse24(byte[] data) {
+        byte[] result = new byte[data.length];
+        for (int i = 0; i < data.length; i += 3) {
+            result[i] = data[i + 2];
+            result[i + 1] = data[i + 1];
+            result[i + 2] = data[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+package com.mbajdowski.sound;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WavFileReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void channelViewShouldReadInterleavedSixteenBitSamples() throws Exception {
+        ByteBuffer data = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        data.putShort((short) 100).putShort((short) -100);
+        data.putShort((short) 1500).putShort((short) -1500);
+        data.putShort((short) 32767).putShort((short) -32768);
+        File file = writeWav(1, 2, 44100, 16, data.array());
+
+        try (WavFileReader reader = new WavFileReader(file)) {
+            assertEquals(3, reader.getSampleCount());
+            assertEquals(44100, reader.getSampleRate());
+            assertEquals(1500, reader.getChannel(0).getSample(1));
+            assertEquals(-1500, reader.getChannel(1).getSample(1));
+            assertEquals(-32768, reader.getChannel(1).getSample(2));
+        }
+    }
+
+    @Test
+    void readShouldContinueFromLastPositionOfChannel() throws Exception {
+        ByteBuffer data = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        data.putShort((short) 1).putShort((short) 2).putShort((short) 3).putShort((short) 4);
+        File file = writeWav(1, 1, 8000, 16, data.array());
+        double[] samples = new double[4];
+
+        try (WavFileReader reader = new WavFileReader(file)) {
+            assertEquals(2, reader.read(0, samples, 0, 2));
+            assertEquals(2, reader.read(0, samples, 2, 5));
+            assertEquals(0, reader.read(0, samples, 0, 1));
+        }
+        assertArrayEquals(new double[]{1, 2, 3, 4}, samples);
+    }
+
+    @Test
+    void readOfOneChannelShouldConsumeFramesOfAllChannels() throws Exception {
+        ByteBuffer data = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        data.putShort((short) 1).putShort((short) -1).putShort((short) 2).putShort((short) -2);
+        File file = writeWav(1, 2, 8000, 16, data.array());
+        double[] samples = new double[2];
+
+        try (WavFileReader reader = new WavFileReader(file)) {
+            assertEquals(1, reader.read(0, samples, 0, 1));
+            assertEquals(1, reader.read(1, samples, 1, 1));
+            assertEquals(0, reader.read(0, samples, 0, 1));
+        }
+        assertArrayEquals(new double[]{1, -2}, samples);
+    }
+
+    @Test
+    void readShouldDecodeAllChannelsInSinglePass() throws Exception {
+        ByteBuffer data = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        data.putShort((short) 1).putShort((short) -1).putShort((short) 2).putShort((short) -2);
+        data.putShort((short) 3).putShort((short) -3);
+        File file = writeWav(1, 2, 8000, 16, data.array());
+        double[][] samples = new double[2][3];
+
+        try (WavFileReader reader = new WavFileReader(file)) {
+            assertEquals(2, reader.read(samples, 0, 2));
+            assertEquals(1, reader.read(samples, 2, 2));
+            assertEquals(0, reader.read(1, new double[1], 0, 1));
+        }
+        assertArrayEquals(new double[]{1, 2, 3}, samples[0]);
+        assertArrayEquals(new double[]{-1, -2, -3}, samples[1]);
+    }
+
+    @Test
+    void channelViewShouldScaleOtherFormatsToSixteenBitRange() throws Exception {
+        byte[] pcm24 = {0x00, 0x00, (byte) 0x80, 0x00, 0x01, 0x00};
+        byte[] pcm8 = {(byte) 0xFF, 0x00};
+        ByteBuffer float32 = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putFloat(0.5f);
+
+        try (WavFileReader reader = new WavFileReader(writeWav(1, 1, 8000, 24, pcm24))) {
+            assertEquals(-32768, reader.getChannel(0).getSample(0));
+            assertEquals(1, reader.getChannel(0).getSample(1));
+        }
+        try (WavFileReader reader = new WavFileReader(writeWav(1, 1, 8000, 8, pcm8))) {
+            assertEquals(127 * 256, reader.getChannel(0).getSample(0));
+            assertEquals(-32768, reader.getChannel(0).getSample(1));
+        }
+        try (WavFileReader reader = new WavFileReader(writeWav(3, 1, 8000, 32, float32.array()))) {
+            assertEquals(16384, reader.getChannel(0).getSample(0));
+        }
+    }
+
+    @Test
+    void constructorShouldThrowExceptionForUnsupportedFormat() throws Exception {
+        File file = writeWav(2, 1, 8000, 4, new byte[4]);
+
+        assertThrows(UnsupportedAudioFileException.class, () -> new WavFileReader(file));
+    }
+
+    @Test
+    void isWavFileShouldReturnFalseForOtherFiles() throws Exception {
+        File file = tempDir.resolve("not.wav").toFile();
+        Files.write(file.toPath(), "just some text".getBytes());
+
+        assertFalse(WavFileReader.isWavFile(file));
+        assertTrue(WavFileReader.isWavFile(writeWav(1, 1, 8000, 16, new byte[2])));
+    }
+
+    private File writeWav(int formatTag, int channels, int sampleRate, int bitsPerSample, byte[] data)
+            throws IOException {
+        int blockAlign = Math.max(1, channels * bitsPerSample / 8);
+        ByteBuffer wav = ByteBuffer.allocate(44 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + data.length).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16)
+                .putShort((short) formatTag).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * blockAlign)
+                .putShort((short) blockAlign).putShort((short) bitsPerSample);
+        wav.put("data".getBytes()).putInt(data.length).put(data);
+
+        File file = Files.createTempFile(tempDir, "test", ".wav").toFile();
+        Files.write(file.toPath(), wav.array());
+        return file;
+    }
+}
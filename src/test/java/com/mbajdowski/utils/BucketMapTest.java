@@ -0,0 +1,75 @@
+package com.mbajdowski.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BucketMapTest {
+
+    @Test
+    void mapShouldTakeHighestMagnitudeOfEveryBucket() {
+        for (int noOfBins : new int[]{7, 255, 2047}) {
+            for (int buckets : new int[]{1, 10, 32}) {
+                int[] freqBuckets = MathHelper.generateFreqBuckets(buckets);
+                BucketMap bucketMap = new BucketMap(freqBuckets, noOfBins, 44100);
+                Random random = new Random(noOfBins * buckets);
+                int[] fftAbs = new int[noOfBins];
+                for (int i = 0; i < noOfBins; i++) {
+                    fftAbs[i] = random.nextInt(1 << 20);
+                }
+
+                assertArrayEquals(mapByFrequency(fftAbs, freqBuckets, 44100), bucketMap.map(fftAbs));
+            }
+        }
+    }
+
+    @Test
+    void mapShouldTakeSquareRootOfHighestComplexMagnitude() {
+        int[] freqBuckets = MathHelper.generateFreqBuckets(10);
+        BucketMap bucketMap = new BucketMap(freqBuckets, 511, 44100);
+        Random random = new Random(511);
+        double[] re = new double[512];
+        double[] im = new double[512];
+        for (int i = 0; i < re.length; i++) {
+            re[i] = random.nextGaussian() * 10000;
+            im[i] = random.nextGaussian() * 10000;
+        }
+
+        assertArrayEquals(bucketMap.map(magnitudes(re, im, 1)), bucketMap.map(re, im, 1));
+    }
+
+    @Test
+    void getBucketShouldIgnoreBinsAboveLastBucket() {
+        BucketMap bucketMap = new BucketMap(new int[]{100, 1000}, 8, 16000);
+
+        //Bins are 1000 Hz apart, so only the first bin fits below 1500 Hz
+        assertEquals(1, bucketMap.getBucket(0));
+        assertEquals(-1, bucketMap.getBucket(1));
+        assertArrayEquals(new int[]{0, 5}, bucketMap.map(new int[]{5, 6, 7, 8, 9, 10, 11, 12}));
+    }
+
+    private static int[] magnitudes(double[] re, double[] im, int from) {
+        int[] result = new int[re.length - from];
+        for (int i = from; i < re.length; i++) {
+            result[i - from] = (int) Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+        }
+        return result;
+    }
+
+    //Straightforward search of the bucket of every bin by its frequency
+    private static int[] mapByFrequency(int[] fftAbs, int[] freqBuckets, float sampleRate) {
+        int[] result = new int[freqBuckets.length];
+        for (int i = 0; i < fftAbs.length; i++) {
+            float freq = (i + 1) * sampleRate / (fftAbs.length * 2);
+            for (int j = 0; j < freqBuckets.length; j++) {
+                if (freq <= freqBuckets[j] * BucketMap.COEFFICIENT) {
+                    result[j] = Math.max(result[j], fftAbs[i]);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
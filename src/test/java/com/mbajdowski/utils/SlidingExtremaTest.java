@@ -0,0 +1,47 @@
+package com.mbajdowski.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingExtremaTest {
+
+    @Test
+    void getExtremaShouldMatchFindExtremaOverWindow() {
+        Random random = new Random(7);
+        int noOfFrames = 500;
+        int halfWindow = 12;
+        List<int[]> spectra = new ArrayList<>();
+        for (int i = 0; i < noOfFrames; i++) {
+            int[] spectrum = new int[10];
+            for (int j = 0; j < spectrum.length; j++) {
+                spectrum[j] = random.nextInt(100000);
+            }
+            spectra.add(spectrum);
+        }
+
+        SlidingExtrema slidingExtrema = new SlidingExtrema();
+        int added = 0;
+        for (int i = 0; i < noOfFrames; i++) {
+            int from = Math.max(i - halfWindow, 0);
+            int to = Math.min(i + halfWindow, noOfFrames);
+            for (; added < to; added++) {
+                slidingExtrema.add(added, spectra.get(added));
+            }
+            slidingExtrema.removeBefore(from);
+
+            assertArrayEquals(MathHelper.findExtrema(spectra.subList(from, to)), slidingExtrema.getExtrema());
+        }
+    }
+
+    @Test
+    void getExtremaShouldReturnEmptyRangeIfNoFrames() {
+        SlidingExtrema slidingExtrema = new SlidingExtrema();
+
+        assertArrayEquals(new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE}, slidingExtrema.getExtrema());
+    }
+}
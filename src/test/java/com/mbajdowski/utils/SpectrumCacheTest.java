@@ -0,0 +1,119 @@
+package com.mbajdowski.utils;
+
+import com.mbajdowski.fft.AnalysisMode;
+import com.mbajdowski.fft.ISpectrumSource;
+import com.mbajdowski.sound.ChannelMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectrumCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void loadShouldReturnSpectraReadThroughStore() throws Exception {
+        SpectrumCache cache = new SpectrumCache(tempDir.toFile());
+        int[][] spectra = {{1, 2, 3}, {-4, 5, 6}, {7, 8, Integer.MAX_VALUE}};
+
+        try (ISpectrumSource source = cache.store("key", new ArraySpectra(spectra))) {
+            int[][] batch = new int[2][];
+            assertEquals(2, source.read(batch, 2));
+            assertEquals(1, source.read(batch, 2));
+        }
+
+        try (ISpectrumSource cached = cache.load("key")) {
+            assertEquals(3, cached.getFrameCount());
+            assertEquals(3, cached.getNoOfBuckets());
+            int[][] result = new int[4][];
+            assertEquals(3, cached.read(result, 4));
+            for (int i = 0; i < spectra.length; i++) {
+                assertArrayEquals(spectra[i], result[i]);
+            }
+        }
+    }
+
+    @Test
+    void storeShouldNotKeepIncompleteSpectra() throws Exception {
+        SpectrumCache cache = new SpectrumCache(tempDir.toFile());
+
+        try (ISpectrumSource source = cache.store("key", new ArraySpectra(new int[][]{{1}, {2}}))) {
+            source.read(new int[1][], 1);
+        }
+
+        assertNull(cache.load("key"));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void storeShouldRemoveTemporaryFileWhenHeaderFails() throws Exception {
+        SpectrumCache cache = new SpectrumCache(tempDir.toFile());
+
+        //Without frames there is no row to take the number of buckets from
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> cache.store("key", new ArraySpectra(new int[0][])));
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void createKeyShouldDependOnContentAndSettings() throws Exception {
+        File first = Files.write(tempDir.resolve("first.wav"), new byte[]{1, 2, 3}).toFile();
+        File second = Files.write(tempDir.resolve("second.wav"), new byte[]{1, 2, 4}).toFile();
+        String key = SpectrumCache.createKey(first, 8, 10, 0, AnalysisMode.FFT, ChannelMode.FIRST);
+
+        assertEquals(key, SpectrumCache.createKey(first, 8, 10, 0, AnalysisMode.FFT, ChannelMode.FIRST));
+        assertNotEquals(key, SpectrumCache.createKey(second, 8, 10, 0, AnalysisMode.FFT, ChannelMode.FIRST));
+        assertNotEquals(key, SpectrumCache.createKey(first, 8, 10, 4096, AnalysisMode.FFT, ChannelMode.FIRST));
+        assertNotEquals(key, SpectrumCache.createKey(first, 8, 10, 0, AnalysisMode.SLIDING_DFT, ChannelMode.FIRST));
+        assertNotEquals(key, SpectrumCache.createKey(first, 8, 10, 0, AnalysisMode.FFT, ChannelMode.ALL));
+    }
+
+    private static class ArraySpectra implements ISpectrumSource {
+
+        private final int[][] spectra;
+        private int position = 0;
+
+        ArraySpectra(int[][] spectra) {
+            this.spectra = spectra;
+        }
+
+        @Override
+        public int getFrameCount() {
+            return spectra.length;
+        }
+
+        @Override
+        public int getChannels() {
+            return 1;
+        }
+
+        @Override
+        public int getNoOfBuckets() {
+            return spectra[0].length;
+        }
+
+        @Override
+        public int read(int[][] result, int count) {
+            int noOfFrames = Math.min(count, spectra.length - position);
+            for (int i = 0; i < noOfFrames; i++) {
+                result[i] = spectra[position++].clone();
+            }
+            return noOfFrames;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
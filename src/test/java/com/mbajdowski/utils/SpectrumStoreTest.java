@@ -0,0 +1,49 @@
+package com.mbajdowski.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectrumStoreTest {
+
+    @Test
+    void getRowShouldViewValuesOfTheFrame() {
+        for (SpectrumStore store : new SpectrumStore[]{SpectrumStore.allocate(3, 2), SpectrumStore.allocateDirect(3, 2)}) {
+            store.set(0, new int[]{1, 2});
+            store.set(1, new int[]{3, 4});
+            store.set(2, new int[]{5, 6});
+
+            IntBuffer row = store.getRow(1);
+            store.set(1, new int[]{7, 8});
+
+            assertEquals(2, row.remaining());
+            assertEquals(7, row.get(0));
+            assertEquals(8, row.get(1));
+            assertEquals(6, store.get(2, 1));
+            assertArrayEquals(new int[]{5, 6}, store.get(2));
+        }
+    }
+
+    @Test
+    void findExtremaShouldUseOnlyGivenFrames() {
+        SpectrumStore store = SpectrumStore.allocate(4, 3);
+        store.set(0, new int[]{-9, 0, 0});
+        store.set(1, new int[]{4, 2, 3});
+        store.set(2, new int[]{1, 7, 5});
+        store.set(3, new int[]{0, 0, 99});
+
+        assertArrayEquals(new int[]{1, 7}, store.findExtrema(1, 3));
+        assertArrayEquals(new int[]{-9, 99}, store.findExtrema(0, 4));
+        assertArrayEquals(new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE}, store.findExtrema(2, 2));
+    }
+
+    @Test
+    void setShouldRejectSpectrumOfOtherLength() {
+        SpectrumStore store = SpectrumStore.allocate(2, 3);
+
+        assertThrows(IllegalArgumentException.class, () -> store.set(0, new int[2]));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(2, 0));
+    }
+}
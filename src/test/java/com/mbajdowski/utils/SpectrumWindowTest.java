@@ -0,0 +1,36 @@
+package com.mbajdowski.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectrumWindowTest {
+
+    @Test
+    void removeBeforeShouldKeepAbsoluteFrameIndexes() {
+        SpectrumWindow window = new SpectrumWindow();
+        int[] third = {5, 6};
+        window.add(new int[]{1, 2});
+        window.add(new int[]{3, 4});
+        window.add(third);
+
+        window.removeBefore(2);
+
+        assertEquals(2, window.getFirstFrame());
+        assertEquals(3, window.getEndFrame());
+        assertSame(third, window.get(2));
+    }
+
+    @Test
+    void findExtremaShouldUseOnlyGivenFrames() {
+        SpectrumWindow window = new SpectrumWindow();
+        window.add(new int[]{0, 100});
+        window.add(new int[]{10, 20});
+        window.add(new int[]{5, 30});
+        window.add(new int[]{1, 200});
+
+        int[] actual = window.findExtrema(1, 3);
+
+        assertArrayEquals(new int[]{5, 30}, actual);
+    }
+}
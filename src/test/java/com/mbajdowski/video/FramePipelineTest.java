@@ -0,0 +1,135 @@
+package com.mbajdowski.video;
+
+import com.mbajdowski.drawer.FrameDrawerAdapter;
+import com.mbajdowski.drawer.FramePool;
+import com.mbajdowski.drawer.ISpectrumHistory;
+import com.mbajdowski.drawer.IStatelessFrameDrawer;
+import com.mbajdowski.drawer.OrderCheckingDrawer;
+import com.mbajdowski.drawer.SpectrumHistoryBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FramePipelineTest {
+
+    private static final int[] EXTREMA = {0, 100};
+
+    @Test
+    void adaptedDrawerShouldDrawFramesInOrderOnOneWorker() throws Exception {
+        RecordingSink sink = new RecordingSink(null);
+        OrderCheckingDrawer drawer = new OrderCheckingDrawer();
+        FramePipeline pipeline = new FramePipeline(new FrameDrawerAdapter(drawer), sink, 4);
+        //Adapted drawer keeps the history itself, the buffer holds only the drawn spectrum
+        SpectrumHistoryBuffer historyBuffer = new SpectrumHistoryBuffer(0);
+
+        for (int frame = 0; frame < 50; frame++) {
+            pipeline.submit(frame, historyBuffer.add(new int[]{frame}), EXTREMA);
+        }
+        pipeline.finish();
+
+        assertEquals(50, drawer.getNextFrame());
+        assertEquals(50, sink.frames.size());
+        for (int frame = 0; frame < 50; frame++) {
+            assertEquals((frame + 1) * 0x010101, sink.firstPixels.get(frame) & 0xFFFFFF, "Frame " + frame);
+        }
+        assertEquals(1, sink.closed);
+    }
+
+    @Test
+    void finishShouldCloseSinkWhenDrawerFails() {
+        RecordingSink sink = new RecordingSink(null);
+        FramePipeline pipeline = new FramePipeline(new FailingDrawer(3), sink, 2);
+        SpectrumHistoryBuffer historyBuffer = new SpectrumHistoryBuffer(0);
+
+        assertThrows(IllegalStateException.class, () -> {
+            for (int frame = 0; frame < 10; frame++) {
+                pipeline.submit(frame, historyBuffer.add(new int[]{frame}), EXTREMA);
+            }
+            pipeline.finish();
+        });
+
+        assertEquals(1, sink.closed);
+        assertTrue(sink.frames.size() <= 3);
+    }
+
+    @Test
+    void abortShouldCloseSinkAndKeepFailureOfClosing() {
+        IOException closeFailure = new IOException("close");
+        RecordingSink sink = new RecordingSink(closeFailure);
+        FramePipeline pipeline = new FramePipeline(new FailingDrawer(-1), sink, 1);
+        RuntimeException failure = new RuntimeException("analysis");
+
+        pipeline.abort(failure);
+        pipeline.abort(failure);
+
+        assertEquals(1, sink.closed);
+        assertArrayEquals(new Throwable[]{closeFailure}, failure.getSuppressed());
+    }
+
+    private static class RecordingSink implements IFrameSink {
+
+        private final List<BufferedImage> frames = Collections.synchronizedList(new ArrayList<>());
+        //Images return to the pool after writing, so their content is recorded when written
+        private final List<Integer> firstPixels = Collections.synchronizedList(new ArrayList<>());
+        private final IOException closeFailure;
+        private volatile int closed = 0;
+
+        RecordingSink(IOException closeFailure) {
+            this.closeFailure = closeFailure;
+        }
+
+        @Override
+        public void write(BufferedImage frame) {
+            frames.add(frame);
+            firstPixels.add(frame.getRGB(0, 0));
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed++;
+            if (closeFailure != null) {
+                throw closeFailure;
+            }
+        }
+    }
+
+    //Draws empty frames and fails on the given one
+    private static class FailingDrawer implements IStatelessFrameDrawer {
+
+        private final int failingFrame;
+
+        FailingDrawer(int failingFrame) {
+            this.failingFrame = failingFrame;
+        }
+
+        @Override
+        public BufferedImage drawFrame(int frame, ISpectrumHistory history, int[] extrema, FramePool framePool) {
+            if (frame == failingFrame) {
+                throw new IllegalStateException("Frame " + frame);
+            }
+            return framePool.acquire(4, 4);
+        }
+
+        @Override
+        public Map<String, String> getOptions() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Properties getProperties() {
+            return new Properties();
+        }
+
+        @Override
+        public void setProperties(Properties properties) {
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.mbajdowski.video;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageSequenceWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeShouldWriteNumberedPngImagesOfEveryFrame() throws Exception {
+        File directory = tempDir.resolve("frames").toFile();
+        BufferedImage frame = new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB);
+
+        try (ImageSequenceWriter writer = new ImageSequenceWriter(directory, ImageSequenceWriter.Format.PNG, 2)) {
+            for (int i = 0; i < 10; i++) {
+                //The frame is reused, every image keeps its own colour
+                frame.setRGB(0, 0, i);
+                writer.write(frame);
+            }
+        }
+
+        for (int i = 0; i < 10; i++) {
+            BufferedImage image = ImageIO.read(new File(directory, String.format("%06d.png", i)));
+            assertEquals(i, image.getRGB(0, 0) & 0xFFFFFF);
+        }
+    }
+
+    @Test
+    void writeShouldWriteBinaryPpmImages() throws Exception {
+        File directory = tempDir.toFile();
+        BufferedImage frame = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+        frame.setRGB(1, 0, 0x0A0B0C);
+
+        try (ImageSequenceWriter writer = new ImageSequenceWriter(directory, ImageSequenceWriter.Format.PPM, 1)) {
+            writer.write(frame);
+        }
+
+        byte[] ppm = Files.readAllBytes(tempDir.resolve("000000.ppm"));
+        byte[] header = "P6\n2 1\n255\n".getBytes("US-ASCII");
+        assertArrayEquals(header, Arrays.copyOf(ppm, header.length));
+        assertArrayEquals(new byte[]{0, 0, 0, 10, 11, 12}, Arrays.copyOfRange(ppm, header.length, ppm.length));
+    }
+}
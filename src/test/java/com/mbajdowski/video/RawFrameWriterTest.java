@@ -0,0 +1,42 @@
+package com.mbajdowski.video;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RawFrameWriterTest {
+
+    @Test
+    void writeShouldWritePackedRgbRows() throws Exception {
+        BufferedImage frame = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+        frame.setRGB(0, 0, 0x102030);
+        frame.setRGB(1, 0, 0xA0B0C0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (RawFrameWriter writer = new RawFrameWriter(out)) {
+            writer.write(frame);
+        }
+
+        assertArrayEquals(new byte[]{0x10, 0x20, 0x30, (byte) 0xA0, (byte) 0xB0, (byte) 0xC0}, out.toByteArray());
+    }
+
+    @Test
+    void writeShouldWriteFullRangeYuvPlanes() throws Exception {
+        //Black has no chroma, U and V are centered at 128
+        BufferedImage frame = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (RawFrameWriter writer = new RawFrameWriter(out, RawFrameWriter.PixelFormat.YUV420)) {
+            writer.write(frame);
+        }
+
+        byte[] expected = new byte[8 + 2 + 2];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) (i < 8 ? 0 : 128);
+        }
+        assertArrayEquals(expected, out.toByteArray());
+    }
+}
@@ -0,0 +1,46 @@
+package com.mbajdowski.video;
+
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.jcodec.scale.AWTUtil;
+import org.jcodec.scale.ColorUtil;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YuvConverterTest {
+
+    @Test
+    void fromBufferedImageShouldMatchJcodecTransform() {
+        int width = 16;
+        int height = 8;
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(3);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        Picture expected = Picture.create(width, height, ColorSpace.YUV420J);
+        ColorUtil.getTransform(ColorSpace.RGB, ColorSpace.YUV420J)
+                .transform(AWTUtil.fromBufferedImageRGB(img), expected);
+
+        Picture actual = YuvConverter.createPicture(width, height);
+        YuvConverter.fromBufferedImage(img, actual);
+
+        for (int plane = 0; plane < 3; plane++) {
+            assertArrayEquals(expected.getPlaneData(plane), actual.getPlaneData(plane));
+        }
+    }
+
+    @Test
+    void fromBufferedImageShouldThrowExceptionIfSizeDiffers() {
+        BufferedImage img = new BufferedImage(16, 8, BufferedImage.TYPE_INT_RGB);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> YuvConverter.fromBufferedImage(img, YuvConverter.createPicture(8, 8)));
+    }
+}